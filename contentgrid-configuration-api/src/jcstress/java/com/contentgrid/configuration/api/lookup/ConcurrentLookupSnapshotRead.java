@@ -0,0 +1,57 @@
+package com.contentgrid.configuration.api.lookup;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.IIII_Result;
+
+@JCStressTest
+@Outcome(id = {"1, 1, 0, 0", "1, 1, 1, 1", "1, 1, 2, 2"}, expect = Expect.ACCEPTABLE, desc = "We have normality.")
+@Outcome(id = {"-1, .*, .*, .*", ".*, -1, .*, .*"}, expect = Expect.FORBIDDEN, desc = "Exception on .add()")
+@Outcome(id = {".*, .*, -1, .*", ".*, .*, .*, -1"}, expect = Expect.FORBIDDEN, desc = "Reading the snapshot failed.")
+@Outcome(expect = Expect.FORBIDDEN, desc = "Data and index are out of sync.")
+@State
+public class ConcurrentLookupSnapshotRead {
+    private final ConcurrentLookup<String, String> map = new ConcurrentLookup<>(Object::toString);
+    private final Lookup<Integer, String> lookup;
+
+    public ConcurrentLookupSnapshotRead() {
+        this.lookup = this.map.createLookup(String::length);
+    }
+
+    @Actor
+    public void actor1(IIII_Result r) {
+        try {
+            map.add("foo");
+            r.r1 = 1;
+        } catch (Exception e) {
+            r.r1 = -1;
+        }
+    }
+
+    @Actor
+    public void actor2(IIII_Result r) {
+        try {
+            map.add("bar");
+            r.r2 = 1;
+        } catch (Exception e) {
+            r.r2 = -1;
+        }
+    }
+
+    @Actor
+    public void actor3(IIII_Result r) {
+        try {
+            var snapshot = map.snapshot();
+            r.r3 = snapshot.size();
+            r.r4 = snapshot.get(lookup, 3).size();
+        } catch (Exception e) {
+            e.printStackTrace();
+            r.r3 = -1;
+            r.r4 = -1;
+        }
+    }
+
+}
@@ -4,30 +4,96 @@ import com.contentgrid.configuration.api.ComposedConfiguration;
 import com.contentgrid.configuration.api.ConfigurationRepository;
 import com.contentgrid.configuration.api.lookup.ConcurrentLookup;
 import com.contentgrid.configuration.api.lookup.Lookup;
+import com.contentgrid.configuration.api.observable.BackpressureStrategy;
+import com.contentgrid.configuration.api.observable.KeyedPublisher;
 import com.contentgrid.configuration.api.observable.Observable;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BinaryOperator;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.Value;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-@RequiredArgsConstructor
 public class ComposedConfigurationRepository<F, K, C> implements ConfigurationRepository<K, C>,
         DynamicallyConfigurable<F, K, C>,
         Observable<ComposedConfiguration<K, C>>,
         AutoCloseable
 {
 
-    @NonNull
-    private final BinaryOperator<C> reducer;
+    /**
+     * The number of recent events that are kept for {@link #observeFrom(long)}
+     */
+    private static final int EVENT_LOG_SIZE = 1024;
+
+    /**
+     * Composes the configurations of all fragments of a composition key at once. Only used when there is at least one.
+     */
+    private final Collector<C, ?, C> composer;
+
+    /**
+     * How long changes to the fragments of a composition key are collected before its composed configuration is
+     * emitted, see {@link #observe()}
+     */
+    private final Duration settleWindow;
 
     private final ConcurrentLookup<F, ConfigurationFragment<F, K, C>> lookup = new ConcurrentLookup<>(ConfigurationFragment::getFragmentId);
     private final Lookup<K, ConfigurationFragment<F, K, C>> composedLookup = lookup.createLookup(ConfigurationFragment::getCompositionKey);
 
+    /**
+     * Composed configurations, together with the fragments they were composed from. An entry is only valid as long as
+     * the fragments of its composition key are still the same instance.
+     */
+    private final Map<K, CachedComposition<F, K, C>> compositionCache = new ConcurrentHashMap<>();
+
+    /**
+     * The last composed configuration that was published for every composition key, shared by all subscribers
+     */
+    private final Map<K, ComposedConfiguration<K, C>> published = new ConcurrentHashMap<>();
+    private final KeyedPublisher<K, ComposedConfiguration<K, C>> publisher = new KeyedPublisher<>(
+            published::values,
+            ComposedConfiguration::getCompositionKey,
+            compositionKey -> Optional.ofNullable(published.get(compositionKey)).stream().toList(),
+            BackpressureStrategy.unbounded(),
+            EVENT_LOG_SIZE
+    );
+
+    /**
+     * Composes every change of the fragments once, and only publishes it when the composed configuration changed
+     */
+    private final Disposable composition = composedLookup.observe().subscribe(this::publish);
+
+    public ComposedConfigurationRepository(BinaryOperator<C> reducer) {
+        this(reducer, Duration.ZERO);
+    }
+
+    public ComposedConfigurationRepository(@NonNull BinaryOperator<C> reducer, Duration settleWindow) {
+        this(Collectors.collectingAndThen(Collectors.reducing(reducer), configuration -> configuration.orElse(null)),
+                settleWindow);
+    }
+
+    /**
+     * @param composer composes the configurations of all fragments of a composition key in one go, so it does not
+     * have to build an intermediate configuration for every pair of them like a {@link BinaryOperator} does
+     */
+    public ComposedConfigurationRepository(Collector<C, ?, C> composer) {
+        this(composer, Duration.ZERO);
+    }
+
+    public ComposedConfigurationRepository(@NonNull Collector<C, ?, C> composer, @NonNull Duration settleWindow) {
+        this.composer = composer;
+        this.settleWindow = settleWindow;
+    }
+
     public ComposedConfigurationRepository(BinaryOperator<C> reducer, Observable<ConfigurationFragment<F, K, C>> observable) {
         this(reducer);
         subscribe(observable);
@@ -35,16 +101,69 @@ public class ComposedConfigurationRepository<F, K, C> implements ConfigurationRe
 
     @Override
     public ComposedConfiguration<K, C> findConfiguration(K compositionKey) {
-        return composeConfiguration(Map.entry(compositionKey, composedLookup.get(compositionKey)));
+        var fragments = composedLookup.get(compositionKey);
+        if (fragments.isEmpty()) {
+            // Unknown composition keys are not cached, so the cache does not grow with every lookup
+            return new ComposedConfigurationImpl<>(compositionKey, null);
+        }
+        return cachedComposeConfiguration(compositionKey, fragments);
+    }
+
+    /**
+     * Waits until there is a configuration for a composition key.
+     * <p>
+     * The returned mono completes immediately when the composition key already has a configuration, and otherwise as
+     * soon as fragments with a configuration are registered for it. It fails with a {@link java.util.concurrent.TimeoutException}
+     * when no fragment is registered within {@code timeout}, and completes empty when this repository is closed.
+     */
+    public Mono<ComposedConfiguration<K, C>> awaitConfiguration(@NonNull K compositionKey, @NonNull Duration timeout) {
+        return Mono.defer(() -> {
+            var configuration = findConfiguration(compositionKey);
+            if (configuration.getConfiguration().isPresent()) {
+                return Mono.just(configuration);
+            }
+            // Not settled, so it completes as soon as the fragments of the composition key compose to a configuration
+            return publisher.observe(compositionKey)
+                    .filter(event -> event.getType() != UpdateType.REMOVE)
+                    .filter(event -> event.getValue().getConfiguration().isPresent())
+                    .next()
+                    .map(UpdateEvent::getValue)
+                    .timeout(timeout);
+        });
     }
 
-    private ComposedConfiguration<K, C> composeConfiguration(Map.Entry<K, Collection<ConfigurationFragment<F, K, C>>> entry) {
-        var configuration = entry.getValue().stream()
+    private ComposedConfiguration<K, C> cachedComposeConfiguration(
+            K compositionKey,
+            Collection<ConfigurationFragment<F, K, C>> fragments
+    ) {
+        var cached = compositionCache.get(compositionKey);
+        if (cached != null && cached.getFragments() == fragments) {
+            return cached.getComposed();
+        }
+
+        var composed = composeConfiguration(compositionKey, fragments);
+        var entry = new CachedComposition<>(fragments, composed);
+        compositionCache.put(compositionKey, entry);
+        if (composedLookup.get(compositionKey) != fragments) {
+            // The fragments changed while composing, don't keep an entry that may never be invalidated
+            compositionCache.remove(compositionKey, entry);
+        }
+        return composed;
+    }
+
+    private ComposedConfiguration<K, C> composeConfiguration(
+            K compositionKey,
+            Collection<ConfigurationFragment<F, K, C>> fragments
+    ) {
+        var configurations = fragments.stream()
                 .map(ConfigurationFragment::getConfiguration)
                 .flatMap(Optional::stream)
-                .reduce(reducer);
+                .toList();
+        if (configurations.isEmpty()) {
+            return new ComposedConfigurationImpl<>(compositionKey, null);
+        }
 
-        return new ComposedConfigurationImpl<>(entry.getKey(), configuration.orElse(null));
+        return new ComposedConfigurationImpl<>(compositionKey, configurations.stream().collect(composer));
     }
 
     @Override
@@ -62,17 +181,108 @@ public class ComposedConfigurationRepository<F, K, C> implements ConfigurationRe
         lookup.remove(fragmentId);
     }
 
+    @Override
+    public void registerAll(Collection<ConfigurationFragment<F, K, C>> fragments) {
+        lookup.addAll(fragments);
+    }
+
+    @Override
+    public void revokeAll(Collection<F> fragmentIds) {
+        lookup.removeAll(fragmentIds);
+    }
+
+    @Override
+    public void replaceAll(Collection<ConfigurationFragment<F, K, C>> fragments) {
+        lookup.replaceAll(fragments);
+    }
+
+    private void publish(UpdateEvent<Map.Entry<K, Collection<ConfigurationFragment<F, K, C>>>> event) {
+        var compositionKey = event.getValue().getKey();
+        if (event.getType() == UpdateType.REMOVE) {
+            compositionCache.remove(compositionKey);
+            var previous = published.remove(compositionKey);
+            publisher.emit(UpdateType.REMOVE, previous != null
+                    ? previous
+                    : composeConfiguration(compositionKey, event.getValue().getValue()));
+            return;
+        }
+
+        var composed = cachedComposeConfiguration(compositionKey, event.getValue().getValue());
+        var previous = published.put(compositionKey, composed);
+        if (previous != null && previous.getConfiguration().equals(composed.getConfiguration())) {
+            // Only the metadata of a fragment changed, or a fragment was replaced by an equal one
+            return;
+        }
+        publisher.emit(previous == null ? UpdateType.ADD : UpdateType.UPDATE, composed);
+    }
+
+    /**
+     * Observes the composed configurations of all composition keys.
+     * <p>
+     * Changes to the fragments that compose to the same configuration as before, like when only the metadata of a
+     * fragment changed, are not delivered.
+     * <p>
+     * With a settle window, changes to the fragments of a composition key, for example from separate sources, are
+     * collected for the duration of the window, and result in one event with the configuration composed from all of
+     * them. Without a settle window, every change results in an event immediately.
+     * <p>
+     * Composition keys are released at the end of their own window, so with a settle window the events are not in
+     * sequence order, and their sequence numbers can not be used to resume with {@link #observeFrom(long)}.
+     */
     @Override
     public Flux<UpdateEvent<ComposedConfiguration<K, C>>> observe() {
-        return composedLookup.observe()
-                .map(event -> event.mapValue(this::composeConfiguration));
+        return settle(publisher);
+    }
+
+    /**
+     * Observes only the changes after an event that was received before, followed by new changes. A subscriber that
+     * reconnects does not need to receive the configuration of every composition key again.
+     * <p>
+     * When the events after {@code sequence} are not kept anymore, the returned flux fails with a
+     * {@link com.contentgrid.configuration.api.observable.MissedEventsException}, and the subscriber has to start over
+     * with {@link #observe()}.
+     * <p>
+     * The changes are never held back by the settle window, so they are delivered in sequence order, and the sequence
+     * number of every received event is a safe point to resume from.
+     *
+     * @param sequence the {@link UpdateEvent#getSequence() sequence number} of the last event that was received
+     */
+    public Flux<UpdateEvent<ComposedConfiguration<K, C>>> observeFrom(long sequence) {
+        return publisher.observeFrom(sequence);
+    }
+
+    /**
+     * Observes the composed configuration of a single composition key, followed by its changes.
+     * <p>
+     * Only the events of this composition key are delivered to the returned flux, so the cost of a change does not grow
+     * with the number of subscribers that observe other composition keys.
+     */
+    public Flux<UpdateEvent<ComposedConfiguration<K, C>>> observe(@NonNull K compositionKey) {
+        return settle(() -> publisher.observe(compositionKey));
+    }
+
+    private Flux<UpdateEvent<ComposedConfiguration<K, C>>> settle(Observable<ComposedConfiguration<K, C>> events) {
+        if (settleWindow.isZero()) {
+            return events.observe();
+        }
+        return events.observeSettled(ComposedConfiguration::getCompositionKey, settleWindow);
     }
 
     @Override
     public void close() throws Exception {
+        composition.dispose();
+        publisher.close();
         lookup.close();
     }
 
+    // Compared by identity, so a conditional remove from the cache only removes this exact entry
+    @RequiredArgsConstructor
+    @Getter
+    private static class CachedComposition<F, K, C> {
+        private final Collection<ConfigurationFragment<F, K, C>> fragments;
+        private final ComposedConfiguration<K, C> composed;
+    }
+
     @Value
     private static class ComposedConfigurationImpl<K, C> implements ComposedConfiguration<K, C> {
         @NonNull
@@ -16,7 +16,7 @@ public class ConfigurationFragment<ID, AGG, C> implements ComposedConfiguration<
     C configuration;
 
     public Optional<C> getConfiguration() {
-        return Optional.of(configuration);
+        return Optional.ofNullable(configuration);
     }
 
     @Override
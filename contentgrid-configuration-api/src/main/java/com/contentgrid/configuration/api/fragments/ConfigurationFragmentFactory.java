@@ -3,4 +3,12 @@ package com.contentgrid.configuration.api.fragments;
 public interface ConfigurationFragmentFactory<T, F, K, C> {
 
     ConfigurationFragment<F, K, C> createFragment(T fragment);
+
+    /**
+     * Creates the fragment of a source that was removed, so it can be revoked. Implementations that keep anything per
+     * source can forget about it here.
+     */
+    default ConfigurationFragment<F, K, C> removeFragment(T fragment) {
+        return createFragment(fragment);
+    }
 }
@@ -1,7 +1,12 @@
 package com.contentgrid.configuration.api.fragments;
 
 import com.contentgrid.configuration.api.observable.Observable;
+import com.contentgrid.configuration.api.observable.Observable.UpdateEvent;
 import com.contentgrid.configuration.api.observable.Observer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 public interface DynamicallyConfigurable<F, K, C> extends Observer<ConfigurationFragment<F, K, C>> {
 
@@ -9,6 +14,28 @@ public interface DynamicallyConfigurable<F, K, C> extends Observer<Configuration
 
     void revoke(F fragmentId);
 
+    /**
+     * Registers multiple fragments at once. Implementations can apply all fragments as one update, so every affected
+     * composition key only changes once.
+     */
+    default void registerAll(Collection<ConfigurationFragment<F, K, C>> fragments) {
+        fragments.forEach(this::register);
+    }
+
+    /**
+     * Revokes multiple fragments at once. Implementations can apply all revocations as one update, so every affected
+     * composition key only changes once.
+     */
+    default void revokeAll(Collection<F> fragmentIds) {
+        fragmentIds.forEach(this::revoke);
+    }
+
+    /**
+     * Replaces all registered fragments with {@code fragments} in a single update. Fragments that are not present in
+     * {@code fragments} are revoked.
+     */
+    void replaceAll(Collection<ConfigurationFragment<F, K, C>> fragments);
+
     @Override
     default void subscribe(Observable<ConfigurationFragment<F, K, C>> observable) {
         observable.observe().subscribe(event -> {
@@ -18,4 +45,46 @@ public interface DynamicallyConfigurable<F, K, C> extends Observer<Configuration
             }
         });
     }
+
+    /**
+     * Subscribes to an observable like {@link #subscribe(Observable)}, but applies its events in batches, see
+     * {@link Observable#observeBatches(int, Duration)}.
+     * <p>
+     * Consecutive registrations and revocations in a batch are applied with {@link #registerAll(Collection)} and
+     * {@link #revokeAll(Collection)}, so the existing data on subscription and a relist of an informer only change
+     * every composition key once per batch. A single change is applied up to {@code maxDelay} later.
+     */
+    default void subscribe(Observable<ConfigurationFragment<F, K, C>> observable, int maxBatchSize, Duration maxDelay) {
+        observable.observeBatches(maxBatchSize, maxDelay).subscribe(this::applyBatch);
+    }
+
+    private void applyBatch(List<UpdateEvent<ConfigurationFragment<F, K, C>>> events) {
+        var registered = new ArrayList<ConfigurationFragment<F, K, C>>();
+        var revoked = new ArrayList<F>();
+        for (var event : events) {
+            switch (event.getType()) {
+                case ADD, UPDATE -> {
+                    // Keep the order of the events when a registration follows a revocation
+                    if (!revoked.isEmpty()) {
+                        revokeAll(List.copyOf(revoked));
+                        revoked.clear();
+                    }
+                    registered.add(event.getValue());
+                }
+                case REMOVE -> {
+                    if (!registered.isEmpty()) {
+                        registerAll(List.copyOf(registered));
+                        registered.clear();
+                    }
+                    revoked.add(event.getValue().getFragmentId());
+                }
+            }
+        }
+        if (!registered.isEmpty()) {
+            registerAll(registered);
+        }
+        if (!revoked.isEmpty()) {
+            revokeAll(revoked);
+        }
+    }
 }
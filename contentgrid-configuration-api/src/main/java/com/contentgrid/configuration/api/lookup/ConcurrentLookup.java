@@ -1,23 +1,31 @@
 package com.contentgrid.configuration.api.lookup;
 
+import com.contentgrid.configuration.api.observable.BackpressureStrategy;
 import com.contentgrid.configuration.api.observable.Observable;
 import com.contentgrid.configuration.api.observable.Observer;
+import com.contentgrid.configuration.api.observable.KeyedPublisher;
 import com.contentgrid.configuration.api.observable.Publisher;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import lombok.AccessLevel;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -26,6 +34,16 @@ import reactor.core.publisher.Flux;
 /**
  * A thread-safe higher level data structure that wraps a map and supports creating multiple lookup indexes. Requires an
  * identity function for the data structure to be stored.
+ * <p>
+ * The data and all lookup indexes are stored together in one immutable, versioned {@link Snapshot}. Writers are
+ * serialized and publish a new snapshot with a single atomic reference swap, so readers never block and never observe
+ * the data and an index at different points in time. Use {@link #snapshot()} to perform multiple reads against the
+ * same version. This is the only mode: the persistent maps only copy the changed path on a write, so a separate mode
+ * with mutable maps would not make reads cheaper, and would let them see inconsistent indexes again.
+ * <p>
+ * Change events are queued in the order of the changes while holding the write lock, and are delivered to subscribers
+ * after it has been released. A slow subscriber therefore never blocks writers. When another thread is delivering
+ * events at the same time, a write can return before its own events have been delivered.
  *
  * @param <K> the type of id
  * @param <V> the type of the stored values
@@ -33,6 +51,11 @@ import reactor.core.publisher.Flux;
 @RequiredArgsConstructor(access = AccessLevel.PROTECTED)
 public class ConcurrentLookup<K, V> implements Observer<V>, Observable<Map.Entry<K, V>>, AutoCloseable {
 
+    /**
+     * The number of recent events of the data and of every index that are kept for {@link #observeFrom(long)}
+     */
+    static final int EVENT_LOG_SIZE = 1024;
+
     @NonNull
     private final Function<V, K> identityFunction;
 
@@ -49,112 +72,189 @@ public class ConcurrentLookup<K, V> implements Observer<V>, Observable<Map.Entry
         subscribe(observable);
     }
 
-    private final Set<Index<?, V>> indices = new HashSet<>();
-
-    private final Map<K, V> data = new ConcurrentHashMap<>();
+    private volatile State state = new State(0, PersistentHashMap.empty(), PersistentHashMap.empty());
 
-    private final Publisher<Map.Entry<K, V>> publisher = new Publisher<>(data::entrySet);
+    private final Publisher<Map.Entry<K, V>> publisher = new Publisher<>(
+            () -> state.data.entrySet(), BackpressureStrategy.unbounded(), EVENT_LOG_SIZE);
 
     public Set<K> keys() {
-        return Set.copyOf(data.keySet());
+        return state.keys();
     }
 
     public final V add(@NonNull V item) {
-        var id = Objects.requireNonNull(this.identityFunction.apply(item), "identity(%s) is null".formatted(item));
-        var writeLock = this.readWriteLock.writeLock();
-
-        try {
-            writeLock.lock();
-
-            var old = this.data.put(id, item);
+        return update(transaction -> transaction.put(identity(item), item));
+    }
 
-            if(old == null) {
-                publisher.emit(UpdateType.ADD, Map.entry(id, item));
-            } else {
-                publisher.emit(UpdateType.UPDATE, Map.entry(id, item));
+    /**
+     * Adds or replaces multiple items at once.
+     * <p>
+     * All items are stored in a single update: every affected index key is only published once, and one event is
+     * emitted for every id that changed.
+     */
+    public final void addAll(@NonNull Collection<? extends V> items) {
+        update(transaction -> {
+            for (var item : items) {
+                transaction.put(identity(item), item);
             }
+            return null;
+        });
+    }
 
-            // update all the indices
-            for (var index : this.indices) {
+    public final V get(@NonNull K id) {
+        return state.get(id);
+    }
 
-                // remove the old item from the index
-                if (old != null) {
-                    index.remove(old);
-                }
+    public final V remove(@NonNull K id) {
+        return update(transaction -> transaction.remove(id));
+    }
 
-                // store the new item in the index
-                index.store(item);
+    /**
+     * Removes multiple items at once, in a single update.
+     */
+    public final void removeAll(@NonNull Collection<? extends K> ids) {
+        update(transaction -> {
+            for (var id : ids) {
+                transaction.remove(id);
             }
-
-            return old;
-        } finally {
-            writeLock.unlock();
-        }
+            return null;
+        });
     }
 
-    public final V get(@NonNull K id) {
-        return this.data.get(id);
+    /**
+     * Replaces the full contents of this lookup with {@code items}.
+     * <p>
+     * Items with an id that is not present in {@code items} are removed. The replacement is published as a single
+     * update: readers see either the old or the new contents, and events are only emitted for ids and index keys that
+     * actually changed. When an id can not be determined for one of the items, nothing is changed.
+     */
+    public final void replaceAll(@NonNull Collection<? extends V> items) {
+        update(transaction -> {
+            var retainedIds = new HashSet<K>();
+            for (var item : items) {
+                var id = identity(item);
+                transaction.put(id, item);
+                retainedIds.add(id);
+            }
+            for (var id : state.keys()) {
+                if (!retainedIds.contains(id)) {
+                    transaction.remove(id);
+                }
+            }
+            return null;
+        });
     }
 
-    public final V remove(@NonNull K id) {
+    /**
+     * Removes all items at once.
+     * <p>
+     * The data and all indexes are swapped for empty ones in a single step, without evaluating any index function.
+     * Removal events are generated from the previous snapshot, and only when somebody is observing. They are not kept
+     * for {@link #observeFrom(long)}: a subscriber that missed them has to start over with {@link #observe()}.
+     */
+    public void clear() {
         var writeLock = this.readWriteLock.writeLock();
 
         try {
             writeLock.lock();
-            var old = this.data.remove(id);
-
-            if (old != null) {
-                publisher.emit(UpdateType.REMOVE, Map.entry(id, old));
-
-                // remove the old item from the index
-                for (var index : this.indices) {
-                    index.remove(old);
-                }
+            var old = state;
+            if (old.data.isEmpty()) {
+                return;
+            }
+            var indexes = PersistentHashMap.<MultiIndex<?>, IndexState<?>>empty();
+            for (var index : old.indexes.keySet()) {
+                indexes = indexes.plus(index, index.emptyState());
             }
+            this.state = new State(old.version + 1, PersistentHashMap.empty(), indexes);
 
-            return old;
+            publisher.enqueueAll(UpdateType.REMOVE, old.data.entrySet());
+            for (var index : old.indexes.keySet()) {
+                index.cleared(old.indexes);
+            }
         } finally {
             writeLock.unlock();
         }
+        flush();
     }
 
+    public int size() {
+        return state.size();
+    }
 
-    public void clear() {
+    /**
+     * Returns the current version of the data and all lookup indexes. The snapshot is immutable; it does not reflect
+     * changes that are made afterwards.
+     */
+    public Snapshot<K, V> snapshot() {
+        return state;
+    }
+
+    private K identity(@NonNull V item) {
+        return Objects.requireNonNull(this.identityFunction.apply(item), "identity(%s) is null".formatted(item));
+    }
+
+    /**
+     * Runs {@code operation} in a new transaction while holding the write lock, and publishes the result. When the
+     * operation throws, the transaction is discarded and nothing is changed.
+     */
+    private <R> R update(Function<Transaction, R> operation) {
         var writeLock = this.readWriteLock.writeLock();
 
+        R result;
         try {
             writeLock.lock();
-            this.data.forEach((k, v) -> remove(k));
+            var transaction = new Transaction(state);
+            result = operation.apply(transaction);
+            commit(transaction);
         } finally {
             writeLock.unlock();
         }
+        flush();
+        return result;
     }
 
-    public int size() {
-        return this.data.size();
+    private void commit(Transaction transaction) {
+        if (transaction.isEmpty()) {
+            return;
+        }
+        var events = transaction.events();
+        this.state = new State(state.version + 1, transaction.data, transaction.indexes);
+
+        // Events are enqueued in the order of the changes, but only delivered by flush() once the write lock is released
+        events.forEach(Runnable::run);
+    }
+
+    /**
+     * Delivers enqueued events to subscribers. This must be called without holding the write lock, so slow subscribers
+     * do not block writers.
+     */
+    private void flush() {
+        publisher.flush();
+        for (var index : state.indexes.keySet()) {
+            index.publisher.flush();
+        }
     }
 
-    private void registerIndex(Index<?, V> index) {
+    private void registerIndex(MultiIndex<?> index) {
         var writeLock = this.readWriteLock.writeLock();
 
         try {
             writeLock.lock();
-            this.indices.add(index);
-
-            // rebuild the index for existing data
-            for (var item : this.data.values()) {
-                index.store(item);
-            }
+            // build the index for existing data
+            var indexState = index.build(state.data);
+            this.state = new State(state.version + 1, state.data, state.indexes.plus(index, indexState));
         } finally {
             writeLock.unlock();
         }
     }
 
-    private void unregisterIndex(Index<?, V> index) {
+    private void unregisterIndex(MultiIndex<?> index) {
         var writeLock = this.readWriteLock.writeLock();
         try {
             writeLock.lock();
-            this.indices.remove(index);
+            var indexes = state.indexes.minus(index);
+            if (indexes != state.indexes) {
+                this.state = new State(state.version + 1, state.data, indexes);
+            }
         } finally {
             writeLock.unlock();
 
@@ -166,13 +266,54 @@ public class ConcurrentLookup<K, V> implements Observer<V>, Observable<Map.Entry
     }
 
     public final <L> Lookup<L, V> createMultiLookup(Function<V, Stream<L>> indexFunction) {
-        var index = new MultiIndex<>(indexFunction, this::unregisterIndex);
+        var index = new MultiIndex<>(indexFunction);
+        registerIndex(index);
+        return index;
+    }
+
+    /**
+     * Creates a lookup index that keeps its index keys sorted, so it can be queried for ranges of index keys
+     */
+    public final <L> SortedLookup<L, V> createSortedLookup(Function<V, L> indexFunction, Comparator<? super L> comparator) {
+        return createSortedMultiLookup(indexFunction.andThen(Stream::of), comparator);
+    }
+
+    /**
+     * Creates a lookup index with multiple index keys per item, that keeps its index keys sorted
+     */
+    public final <L> SortedLookup<L, V> createSortedMultiLookup(
+            Function<V, Stream<L>> indexFunction,
+            Comparator<? super L> comparator
+    ) {
+        var index = new SortedIndex<>(indexFunction, comparator);
+        registerIndex(index);
+        return index;
+    }
+
+    /**
+     * Creates a lookup index on dot-separated names that can be queried for the longest matching parent domain
+     */
+    public final SuffixLookup<V> createSuffixLookup(Function<V, String> indexFunction) {
+        return createSuffixMultiLookup(indexFunction.andThen(Stream::of));
+    }
+
+    /**
+     * Creates a lookup index with multiple dot-separated names per item, that can be queried for the longest matching
+     * parent domain
+     */
+    public final SuffixLookup<V> createSuffixMultiLookup(Function<V, Stream<String>> indexFunction) {
+        var index = new SuffixIndex(indexFunction);
         registerIndex(index);
         return index;
     }
 
     public Stream<V> stream() {
-        return this.data.values().stream();
+        // Bind to the state at the moment the terminal operation starts, not when the stream is created
+        return StreamSupport.stream(
+                () -> state.data.values().spliterator(),
+                Spliterator.SIZED | Spliterator.SUBSIZED,
+                false
+        );
     }
 
     @Override
@@ -190,95 +331,481 @@ public class ConcurrentLookup<K, V> implements Observer<V>, Observable<Map.Entry
         return publisher.observe();
     }
 
+    @Override
+    public Flux<UpdateEvent<Entry<K, V>>> observe(BackpressureStrategy<Entry<K, V>> backpressureStrategy) {
+        return publisher.observe(backpressureStrategy);
+    }
+
+    /**
+     * Observes only the events after an event that was received before, followed by new events, see
+     * {@link Publisher#observeFrom(long)}.
+     * <p>
+     * The most recent {@value #EVENT_LOG_SIZE} events are kept. When the subscriber missed more events, or missed a
+     * {@link #clear()}, the returned flux fails with a
+     * {@link com.contentgrid.configuration.api.observable.MissedEventsException}.
+     *
+     * @param sequence the {@link UpdateEvent#getSequence() sequence number} of the last event that was received
+     */
+    public Flux<UpdateEvent<Entry<K, V>>> observeFrom(long sequence) {
+        return publisher.observeFrom(sequence);
+    }
+
+    /**
+     * Completes the subscribers of this lookup and of all of its lookup indexes
+     */
     @Override
     public void close() throws Exception {
+        List<MultiIndex<?>> indexes;
         var lock = readWriteLock.writeLock();
         try {
             lock.lock();
-            for (Index<?, V> index : indices) {
-                index.close();
-            }
+            indexes = List.copyOf(state.indexes.keySet());
         } finally {
             lock.unlock();
         }
+        // Closing flushes the pending events, which must not happen while holding the write lock
+        for (var index : indexes) {
+            index.close();
+        }
+        publisher.close();
+    }
+
+    /**
+     * An immutable view of a {@link ConcurrentLookup} and all of its lookup indexes at one point in time.
+     *
+     * @param <K> the type of id
+     * @param <V> the type of the stored values
+     */
+    public interface Snapshot<K, V> {
+
+        /**
+         * @return the version of this snapshot; every change to the lookup or its indexes increments the version
+         */
+        long getVersion();
+
+        int size();
+
+        Set<K> keys();
+
+        V get(K id);
+
+        Stream<V> stream();
+
+        /**
+         * Looks up values in a lookup index, as it was at the time of this snapshot
+         *
+         * @param lookup a lookup index that was created on the {@link ConcurrentLookup} of this snapshot
+         * @param key the index key to look up
+         * @return the values for the key
+         * @throws IllegalArgumentException when the lookup index does not belong to this snapshot
+         */
+        <L> Collection<V> get(Lookup<L, V> lookup, L key);
+
+        /**
+         * Returns the keys of a lookup index, as it was at the time of this snapshot
+         *
+         * @param lookup a lookup index that was created on the {@link ConcurrentLookup} of this snapshot
+         * @return the keys of the lookup index
+         * @throws IllegalArgumentException when the lookup index does not belong to this snapshot
+         */
+        <L> Set<L> keys(Lookup<L, V> lookup);
     }
 
-    private interface Index<L, T> extends Lookup<L, T>, AutoCloseable {
+    private final class State implements Snapshot<K, V> {
+        private final long version;
+        private final PersistentHashMap<K, V> data;
+        private final PersistentHashMap<MultiIndex<?>, IndexState<?>> indexes;
+
+        private State(
+                long version,
+                PersistentHashMap<K, V> data,
+                PersistentHashMap<MultiIndex<?>, IndexState<?>> indexes
+        ) {
+            this.version = version;
+            this.data = data;
+            this.indexes = indexes;
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
 
-        void store(T data);
+        @Override
+        public int size() {
+            return data.size();
+        }
 
-        void remove(T data);
+        @Override
+        public Set<K> keys() {
+            return data.keySet();
+        }
 
+        @Override
+        public V get(K id) {
+            return data.get(id);
+        }
+
+        @Override
+        public Stream<V> stream() {
+            return data.values().stream();
+        }
+
+        @Override
+        public <L> Collection<V> get(Lookup<L, V> lookup, L key) {
+            var bucket = buckets(lookup).get(key);
+            return bucket == null ? PersistentHashSet.empty() : bucket;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <L> Set<L> keys(Lookup<L, V> lookup) {
+            return (Set<L>) buckets(lookup).keySet();
+        }
+
+        private PersistentHashMap<?, PersistentHashSet<V>> buckets(Lookup<?, V> lookup) {
+            var indexState = indexes.get(lookup);
+            if (indexState == null) {
+                throw new IllegalArgumentException("%s is not an open lookup of this ConcurrentLookup".formatted(lookup));
+            }
+            return indexState.buckets;
+        }
     }
 
-    private static class MultiIndex<L, T> implements Index<L, T> {
-        private final Map<L, Collection<T>> data = new ConcurrentHashMap<>();
-        private final Function<T, Stream<L>> indexFunction;
-        private final Publisher<Map.Entry<L, Collection<T>>> publisher = new Publisher<>(data::entrySet);
-        private final Consumer<Index<L, T>> onClose;
+    /**
+     * Collects changes to the data and all indexes, so they can be published as a single new {@link State}.
+     * <p>
+     * Only the ids and index keys that were touched are remembered. Events are computed by comparing them against the
+     * state the transaction started from, so an id or index key that is modified multiple times results in one event.
+     */
+    private final class Transaction {
+        private final State base;
+        private PersistentHashMap<K, V> data;
+        private PersistentHashMap<MultiIndex<?>, IndexState<?>> indexes;
+        private final Set<K> changedIds = new LinkedHashSet<>();
+        private final Map<MultiIndex<?>, Set<Object>> changedIndexKeys = new LinkedHashMap<>();
+
+        private Transaction(State state) {
+            this.base = state;
+            this.data = state.data;
+            this.indexes = state.indexes;
+        }
+
+        V put(K id, V item) {
+            var old = data.get(id);
+            if (item.equals(old)) {
+                // Storing an equal item changes nothing, so the indexes are not touched and no event is emitted
+                return old;
+            }
+            data = data.plus(id, item);
+            changedIds.add(id);
+
+            // update all the indices
+            for (var index : indexes.keySet()) {
+                updateIndex(index, id, old, item);
+            }
+            return old;
+        }
+
+        V remove(K id) {
+            var old = data.get(id);
+            if (old != null) {
+                data = data.minus(id);
+                changedIds.add(id);
+
+                // remove the old item from the index
+                for (var index : indexes.keySet()) {
+                    updateIndex(index, id, old, null);
+                }
+            }
+            return old;
+        }
+
+        boolean isEmpty() {
+            return changedIds.isEmpty();
+        }
 
-        MultiIndex(@NonNull Function<T, Stream<L>> indexFunction, Consumer<Index<L, T>> onClose) {
+        private <L> void updateIndex(MultiIndex<L> index, K id, V old, V item) {
+            var changedKeys = changedIndexKeys.computeIfAbsent(index, i -> new LinkedHashSet<>());
+            var indexState = index.state(indexes);
+            if (old != null) {
+                indexState = index.remove(indexState, id, old, changedKeys::add);
+            }
+            if (item != null) {
+                indexState = index.store(indexState, id, item, changedKeys::add);
+            }
+            indexes = indexes.plus(index, indexState);
+        }
+
+        /**
+         * @return the events for everything that changed since the start of the transaction, in order of first change
+         */
+        List<Runnable> events() {
+            var events = new ArrayList<Runnable>();
+            for (var id : changedIds) {
+                var old = base.data.get(id);
+                var item = data.get(id);
+                if (item != null) {
+                    var type = old == null ? UpdateType.ADD : UpdateType.UPDATE;
+                    events.add(() -> publisher.enqueue(type, Map.entry(id, item)));
+                } else if (old != null) {
+                    events.add(() -> publisher.enqueue(UpdateType.REMOVE, Map.entry(id, old)));
+                }
+            }
+            changedIndexKeys.forEach((index, keys) -> index.changes(base.indexes, indexes, keys, events));
+            return events;
+        }
+    }
+
+    /**
+     * The contents of one lookup index: the buckets per index key, and the index keys of every stored item by id. Sorted
+     * indexes also keep their index keys in order.
+     *
+     * @param <L> the type of index keys
+     */
+    private final class IndexState<L> {
+        private final PersistentHashMap<L, PersistentHashSet<V>> buckets;
+        private final PersistentHashMap<K, List<L>> keysById;
+        private final PersistentTreeSet<L> sortedKeys;
+
+        private IndexState(
+                PersistentHashMap<L, PersistentHashSet<V>> buckets,
+                PersistentHashMap<K, List<L>> keysById,
+                PersistentTreeSet<L> sortedKeys
+        ) {
+            this.buckets = buckets;
+            this.keysById = keysById;
+            this.sortedKeys = sortedKeys;
+        }
+    }
+
+    private class MultiIndex<L> implements Lookup<L, V>, AutoCloseable {
+        private final Function<V, Stream<L>> indexFunction;
+        private final Comparator<? super L> comparator;
+        private final KeyedPublisher<L, Map.Entry<L, Collection<V>>> publisher = new KeyedPublisher<>(
+                () -> Collections.<L, Collection<V>>unmodifiableMap(buckets(state.indexes)).entrySet(),
+                Map.Entry::getKey,
+                key -> {
+                    var entry = entry(buckets(state.indexes), key);
+                    return entry == null ? List.of() : List.of(entry);
+                },
+                BackpressureStrategy.unbounded(),
+                EVENT_LOG_SIZE
+        );
+
+        MultiIndex(@NonNull Function<V, Stream<L>> indexFunction) {
+            this(indexFunction, null);
+        }
+
+        /**
+         * @param comparator the order in which index keys are kept, or {@code null} when they do not need to be sorted
+         */
+        MultiIndex(@NonNull Function<V, Stream<L>> indexFunction, Comparator<? super L> comparator) {
             this.indexFunction = indexFunction;
-            this.onClose = onClose;
+            this.comparator = comparator;
+        }
+
+        private IndexState<L> emptyState() {
+            return new IndexState<>(
+                    PersistentHashMap.empty(),
+                    PersistentHashMap.empty(),
+                    comparator == null ? null : PersistentTreeSet.empty(comparator)
+            );
+        }
+
+        /**
+         * @return the entry of an index key with its values, or {@code null} when there are no values for the key
+         */
+        Map.Entry<L, Collection<V>> entry(PersistentHashMap<L, PersistentHashSet<V>> buckets, L key) {
+            var bucket = buckets.get(key);
+            return bucket == null ? null : Map.entry(key, bucket);
+        }
+
+        @SuppressWarnings("unchecked")
+        IndexState<L> state(PersistentHashMap<MultiIndex<?>, IndexState<?>> indexes) {
+            var indexState = (IndexState<L>) indexes.get(this);
+            // A closed index has no data anymore
+            return indexState == null ? emptyState() : indexState;
+        }
+
+        PersistentHashMap<L, PersistentHashSet<V>> buckets(PersistentHashMap<MultiIndex<?>, IndexState<?>> indexes) {
+            return state(indexes).buckets;
         }
 
         @Override
         public Set<L> keys() {
-            return Set.copyOf(data.keySet());
+            return buckets(state.indexes).keySet();
         }
 
         @Override
-        public List<T> get(L key) {
-            return List.copyOf(this.data.getOrDefault(key, Set.of()));
+        public Collection<V> get(L key) {
+            // Buckets are immutable, so they can be handed out as-is
+            var bucket = buckets(state.indexes).get(key);
+            return bucket == null ? PersistentHashSet.empty() : bucket;
         }
 
-        @Override
-        public void store(T data) {
-            this.indexFunction.apply(data).forEachOrdered(key -> {
+        private IndexState<L> build(PersistentHashMap<K, V> data) {
+            var indexState = emptyState();
+            for (var entry : data.entrySet()) {
+                indexState = store(indexState, entry.getKey(), entry.getValue(), key -> {});
+            }
+            return indexState;
+        }
+
+        private IndexState<L> store(IndexState<L> indexState, K id, V data, Consumer<L> changedKeys) {
+            var keys = this.indexFunction.apply(data).toList();
+            if (keys.isEmpty()) {
+                return indexState;
+            }
+            var buckets = indexState.buckets;
+            var sortedKeys = indexState.sortedKeys;
+            for (var key : keys) {
                 Objects.requireNonNull(key, "key cannot be null");
-                this.data.compute(key, (k, dataCollection) -> {
-                    if(dataCollection == null) {
-                        var newCollection = Set.of(data);
-                        publisher.emit(UpdateType.ADD, Map.entry(key, newCollection));
-                        return newCollection;
-                    } else {
-                        var newCollection = Stream.concat(dataCollection.stream(), Stream.of(data))
-                                .collect(Collectors.toUnmodifiableSet());
-                        publisher.emit(UpdateType.UPDATE, Map.entry(key, newCollection));
-                        return newCollection;
-                    }
-                });
-            });
+                var dataCollection = buckets.get(key);
+                if (dataCollection == null && sortedKeys != null) {
+                    sortedKeys = sortedKeys.plus(key);
+                }
+                var newCollection = dataCollection == null ? PersistentHashSet.of(data) : dataCollection.plus(data);
+                if (newCollection != dataCollection) {
+                    changedKeys.accept(key);
+                    buckets = buckets.plus(key, newCollection);
+                }
+            }
+            return new IndexState<>(buckets, indexState.keysById.plus(id, keys), sortedKeys);
         }
 
-        @Override
-        public void remove(T data) {
-            this.indexFunction.apply(data).forEach(key -> {
-                this.data.computeIfPresent(Objects.requireNonNull(key), (k, dataCollection) -> {
-                    var newCollection = new HashSet<>(dataCollection);
-                    var hasRemoved = newCollection.remove(data);
-                    var unmodifiableCollection = Set.copyOf(newCollection);
-                    if(hasRemoved && newCollection.isEmpty()) {
-                        publisher.emit(UpdateType.REMOVE, Map.entry(k, dataCollection));
-                        return null;
-                    } else if(hasRemoved) {
-                        publisher.emit(UpdateType.UPDATE, Map.entry(k, unmodifiableCollection));
-                    }
-                    return unmodifiableCollection;
-                });
-            });
+        private IndexState<L> remove(IndexState<L> indexState, K id, V data, Consumer<L> changedKeys) {
+            // The keys that were recorded when the item was stored, so the index function is not evaluated again
+            var keys = indexState.keysById.get(id);
+            if (keys == null) {
+                return indexState;
+            }
+            var buckets = indexState.buckets;
+            var sortedKeys = indexState.sortedKeys;
+            for (var key : keys) {
+                var dataCollection = buckets.get(key);
+                if (dataCollection == null) {
+                    continue;
+                }
+                var newCollection = dataCollection.minus(data);
+                if (newCollection == dataCollection) {
+                    continue;
+                }
+                changedKeys.accept(key);
+                if (newCollection.isEmpty()) {
+                    buckets = buckets.minus(key);
+                    sortedKeys = sortedKeys == null ? null : sortedKeys.minus(key);
+                } else {
+                    buckets = buckets.plus(key, newCollection);
+                }
+            }
+            return new IndexState<>(buckets, indexState.keysById.minus(id), sortedKeys);
+        }
+
+        /**
+         * Adds an event for every key in {@code keys} of which the bucket is different between two versions
+         */
+        @SuppressWarnings("unchecked")
+        private void changes(
+                PersistentHashMap<MultiIndex<?>, IndexState<?>> before,
+                PersistentHashMap<MultiIndex<?>, IndexState<?>> after,
+                Collection<?> keys,
+                List<Runnable> events
+        ) {
+            var oldBuckets = buckets(before);
+            var newBuckets = buckets(after);
+            for (var changedKey : keys) {
+                var key = (L) changedKey;
+                var oldBucket = oldBuckets.get(key);
+                var newBucket = newBuckets.get(key);
+                if (oldBucket == newBucket) {
+                    continue;
+                }
+                if (oldBucket == null) {
+                    events.add(() -> publisher.enqueue(UpdateType.ADD, Map.entry(key, newBucket)));
+                } else if (newBucket == null) {
+                    events.add(() -> publisher.enqueue(UpdateType.REMOVE, Map.entry(key, oldBucket)));
+                } else {
+                    events.add(() -> publisher.enqueue(UpdateType.UPDATE, Map.entry(key, newBucket)));
+                }
+            }
+        }
+
+        /**
+         * Enqueues removal events for all buckets, as they were in the indexes before everything was cleared
+         */
+        private void cleared(PersistentHashMap<MultiIndex<?>, IndexState<?>> before) {
+            publisher.enqueueAll(UpdateType.REMOVE, Collections.<L, Collection<V>>unmodifiableMap(buckets(before)).entrySet());
         }
 
         @Override
-        public Flux<UpdateEvent<Entry<L, Collection<T>>>> observe() {
+        public Flux<UpdateEvent<Entry<L, Collection<V>>>> observe() {
             return publisher.observe();
         }
 
+        @Override
+        public Flux<UpdateEvent<Entry<L, Collection<V>>>> observe(
+                BackpressureStrategy<Entry<L, Collection<V>>> backpressureStrategy
+        ) {
+            return publisher.observe(backpressureStrategy);
+        }
+
+        @Override
+        public Flux<UpdateEvent<Entry<L, Collection<V>>>> observeFrom(long sequence) {
+            return publisher.observeFrom(sequence);
+        }
+
+        @Override
+        public Flux<UpdateEvent<Entry<L, Collection<V>>>> observe(@NonNull L key) {
+            return publisher.observe(key);
+        }
+
         @Override
         public void close() {
-            onClose.accept(this);
+            unregisterIndex(this);
             publisher.close();
-            data.clear();
         }
     }
-}
\ No newline at end of file
+
+    private final class SortedIndex<L> extends MultiIndex<L> implements SortedLookup<L, V> {
+
+        SortedIndex(Function<V, Stream<L>> indexFunction, @NonNull Comparator<? super L> comparator) {
+            super(indexFunction, comparator);
+        }
+
+        @Override
+        public Stream<Entry<L, Collection<V>>> range(L fromInclusive, L toExclusive) {
+            var indexState = state(state.indexes);
+            var keys = indexState.sortedKeys.range(fromInclusive, toExclusive);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(keys, Spliterator.ORDERED), false)
+                    .map(key -> entry(indexState.buckets, key))
+                    .filter(Objects::nonNull);
+        }
+    }
+
+    private final class SuffixIndex extends MultiIndex<String> implements SuffixLookup<V> {
+
+        SuffixIndex(Function<V, Stream<String>> indexFunction) {
+            super(indexFunction);
+        }
+
+        @Override
+        public Optional<Entry<String, Collection<V>>> longestSuffix(String name) {
+            return suffixes(name).findFirst();
+        }
+
+        @Override
+        public Stream<Entry<String, Collection<V>>> suffixes(@NonNull String name) {
+            var buckets = state(state.indexes).buckets;
+            // Walk from the full name to its parents, one label at a time
+            return Stream.iterate(name, Objects::nonNull, SuffixIndex::parent)
+                    .map(suffix -> entry(buckets, suffix))
+                    .filter(Objects::nonNull);
+        }
+
+        private static String parent(String name) {
+            var separator = name.indexOf('.');
+            return separator < 0 ? null : name.substring(separator + 1);
+        }
+    }
+}
@@ -1,13 +1,39 @@
 package com.contentgrid.configuration.api.lookup;
 
+import com.contentgrid.configuration.api.observable.MissedEventsException;
 import com.contentgrid.configuration.api.observable.Observable;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Stream;
+import reactor.core.publisher.Flux;
 
 public interface Lookup<L, V> extends Observable<Map.Entry<L, Collection<V>>> {
     Set<L> keys();
     Collection<V> get(L key);
+
+    /**
+     * Observes only the events after an event that was received before, followed by new events.
+     * <p>
+     * When the events after {@code sequence} are not kept anymore, the returned flux fails with a
+     * {@link MissedEventsException}. By default, no events are kept at all, so the subscriber always has to start over
+     * with {@link #observe()}.
+     *
+     * @param sequence the {@link UpdateEvent#getSequence() sequence number} of the last event that was received
+     */
+    default Flux<UpdateEvent<Map.Entry<L, Collection<V>>>> observeFrom(long sequence) {
+        return Flux.error(new MissedEventsException(sequence));
+    }
+
+    /**
+     * Observes an event for the current values of a single key, followed by the new events for that key.
+     * <p>
+     * By default, the events of all keys are filtered. Implementations can deliver only the events of the key instead,
+     * so the cost of an event does not grow with the number of subscribers that observe other keys.
+     */
+    default Flux<UpdateEvent<Map.Entry<L, Collection<V>>>> observe(L key) {
+        return observe().filter(event -> Objects.equals(event.getValue().getKey(), key));
+    }
 }
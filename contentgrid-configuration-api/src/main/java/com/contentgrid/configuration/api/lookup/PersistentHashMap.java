@@ -0,0 +1,562 @@
+package com.contentgrid.configuration.api.lookup;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable hash map, implemented as a compressed hash-array mapped prefix trie (CHAMP).
+ * <p>
+ * Every modification returns a new map that shares all untouched nodes with the original one, so adding or removing
+ * an entry costs O(log<sub>32</sub> n) instead of copying the whole map. Modifications that do not change anything
+ * return the same instance, which makes identity comparison a cheap way to detect changes.
+ * <p>
+ * Neither keys nor values can be {@code null}.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    /**
+     * Number of trie levels needed to consume all hash bits, plus one level for collision nodes
+     */
+    private static final int MAX_DEPTH = (Integer.SIZE + BITS - 1) / BITS + 1;
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(BitmapNode.empty(), 0);
+
+    private final Node<K, V> root;
+    private final int size;
+
+    private PersistentHashMap(Node<K, V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Returns a map that contains all entries of this map, and maps {@code key} to {@code value}.
+     *
+     * @return a new map, or this map when {@code key} is already mapped to this exact {@code value} instance
+     */
+    PersistentHashMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        var change = new Change();
+        var newRoot = root.put(key, value, hash(key), 0, change);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(newRoot, change.added ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map that contains all entries of this map, except for the one with {@code key}.
+     *
+     * @return a new map, or this map when {@code key} is not present
+     */
+    PersistentHashMap<K, V> minus(Object key) {
+        if (key == null) {
+            return this;
+        }
+        var newRoot = root.remove(key, hash(key), 0);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(newRoot, size - 1);
+    }
+
+    @Override
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        return root.find(key, hash(key), 0);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new TrieIterator<>(root) {
+                    @Override
+                    Entry<K, V> item(Node<K, V> node, int index) {
+                        return Map.entry(node.keyAt(index), node.valueAt(index));
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Map.Entry<?, ?> entry && Objects.equals(get(entry.getKey()), entry.getValue());
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<K> iterator() {
+                return new TrieIterator<>(root) {
+                    @Override
+                    K item(Node<K, V> node, int index) {
+                        return node.keyAt(index);
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new TrieIterator<>(root) {
+                    @Override
+                    V item(Node<K, V> node, int index) {
+                        return node.valueAt(index);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        var h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int mask(int hash, int shift) {
+        return (hash >>> shift) & MASK;
+    }
+
+    private static int bitpos(int hash, int shift) {
+        return 1 << mask(hash, shift);
+    }
+
+    private static final class Change {
+        private boolean added;
+    }
+
+    private abstract static class Node<K, V> {
+
+        abstract V find(Object key, int hash, int shift);
+
+        abstract Node<K, V> put(K key, V value, int hash, int shift, Change change);
+
+        abstract Node<K, V> remove(Object key, int hash, int shift);
+
+        abstract int dataArity();
+
+        abstract K keyAt(int index);
+
+        abstract V valueAt(int index);
+
+        abstract int nodeArity();
+
+        abstract Node<K, V> nodeAt(int index);
+
+        boolean isSingleEntry() {
+            return nodeArity() == 0 && dataArity() == 1;
+        }
+    }
+
+    /**
+     * A trie node that stores inline entries at the front of its content array, and sub-nodes in reverse order at the
+     * back. Which slots are in use is tracked with one bitmap for inline entries and one for sub-nodes.
+     */
+    private static final class BitmapNode<K, V> extends Node<K, V> {
+
+        private static final BitmapNode<?, ?> EMPTY = new BitmapNode<>(0, 0, new Object[0]);
+
+        private final int dataMap;
+        private final int nodeMap;
+        private final Object[] content;
+
+        private BitmapNode(int dataMap, int nodeMap, Object[] content) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <K, V> BitmapNode<K, V> empty() {
+            return (BitmapNode<K, V>) EMPTY;
+        }
+
+        @Override
+        V find(Object key, int hash, int shift) {
+            var bit = bitpos(hash, shift);
+            if ((dataMap & bit) != 0) {
+                var index = dataIndex(bit);
+                return key.equals(keyAt(index)) ? valueAt(index) : null;
+            }
+            if ((nodeMap & bit) != 0) {
+                return nodeAt(nodeIndex(bit)).find(key, hash, shift + BITS);
+            }
+            return null;
+        }
+
+        @Override
+        Node<K, V> put(K key, V value, int hash, int shift, Change change) {
+            var bit = bitpos(hash, shift);
+            if ((dataMap & bit) != 0) {
+                var index = dataIndex(bit);
+                var currentKey = keyAt(index);
+                if (key.equals(currentKey)) {
+                    if (valueAt(index) == value) {
+                        return this;
+                    }
+                    var copy = content.clone();
+                    copy[2 * index + 1] = value;
+                    return new BitmapNode<>(dataMap, nodeMap, copy);
+                }
+                change.added = true;
+                var subNode = mergeEntries(
+                        currentKey, valueAt(index), hash(currentKey),
+                        key, value, hash,
+                        shift + BITS
+                );
+                return copyAndMigrateFromDataToNode(bit, subNode);
+            }
+            if ((nodeMap & bit) != 0) {
+                var subNode = nodeAt(nodeIndex(bit));
+                var newSubNode = subNode.put(key, value, hash, shift + BITS, change);
+                return newSubNode == subNode ? this : copyAndSetNode(bit, newSubNode);
+            }
+            change.added = true;
+            return copyAndInsertEntry(bit, key, value);
+        }
+
+        @Override
+        Node<K, V> remove(Object key, int hash, int shift) {
+            var bit = bitpos(hash, shift);
+            if ((dataMap & bit) != 0) {
+                var index = dataIndex(bit);
+                if (!key.equals(keyAt(index))) {
+                    return this;
+                }
+                return copyAndRemoveEntry(bit);
+            }
+            if ((nodeMap & bit) != 0) {
+                var subNode = nodeAt(nodeIndex(bit));
+                var newSubNode = subNode.remove(key, hash, shift + BITS);
+                if (newSubNode == subNode) {
+                    return this;
+                }
+                if (newSubNode.isSingleEntry()) {
+                    // Keep the trie compact: a sub-node with a single entry is inlined in its parent
+                    return copyAndMigrateFromNodeToData(bit, newSubNode.keyAt(0), newSubNode.valueAt(0));
+                }
+                return copyAndSetNode(bit, newSubNode);
+            }
+            return this;
+        }
+
+        @Override
+        int dataArity() {
+            return Integer.bitCount(dataMap);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        K keyAt(int index) {
+            return (K) content[2 * index];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        V valueAt(int index) {
+            return (V) content[2 * index + 1];
+        }
+
+        @Override
+        int nodeArity() {
+            return Integer.bitCount(nodeMap);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Node<K, V> nodeAt(int index) {
+            return (Node<K, V>) content[content.length - 1 - index];
+        }
+
+        private int dataIndex(int bit) {
+            return Integer.bitCount(dataMap & (bit - 1));
+        }
+
+        private int nodeIndex(int bit) {
+            return Integer.bitCount(nodeMap & (bit - 1));
+        }
+
+        private Node<K, V> copyAndSetNode(int bit, Node<K, V> node) {
+            var copy = content.clone();
+            copy[content.length - 1 - nodeIndex(bit)] = node;
+            return new BitmapNode<>(dataMap, nodeMap, copy);
+        }
+
+        private Node<K, V> copyAndInsertEntry(int bit, K key, V value) {
+            var index = 2 * dataIndex(bit);
+            var copy = new Object[content.length + 2];
+            System.arraycopy(content, 0, copy, 0, index);
+            copy[index] = key;
+            copy[index + 1] = value;
+            System.arraycopy(content, index, copy, index + 2, content.length - index);
+            return new BitmapNode<>(dataMap | bit, nodeMap, copy);
+        }
+
+        private Node<K, V> copyAndRemoveEntry(int bit) {
+            var index = 2 * dataIndex(bit);
+            var copy = new Object[content.length - 2];
+            System.arraycopy(content, 0, copy, 0, index);
+            System.arraycopy(content, index + 2, copy, index, content.length - index - 2);
+            return new BitmapNode<>(dataMap ^ bit, nodeMap, copy);
+        }
+
+        private Node<K, V> copyAndMigrateFromDataToNode(int bit, Node<K, V> node) {
+            var oldIndex = 2 * dataIndex(bit);
+            var newIndex = content.length - 2 - nodeIndex(bit);
+            var copy = new Object[content.length - 1];
+            System.arraycopy(content, 0, copy, 0, oldIndex);
+            System.arraycopy(content, oldIndex + 2, copy, oldIndex, newIndex - oldIndex);
+            copy[newIndex] = node;
+            System.arraycopy(content, newIndex + 2, copy, newIndex + 1, content.length - newIndex - 2);
+            return new BitmapNode<>(dataMap ^ bit, nodeMap | bit, copy);
+        }
+
+        private Node<K, V> copyAndMigrateFromNodeToData(int bit, K key, V value) {
+            var oldIndex = content.length - 1 - nodeIndex(bit);
+            var newIndex = 2 * dataIndex(bit);
+            var copy = new Object[content.length + 1];
+            System.arraycopy(content, 0, copy, 0, newIndex);
+            copy[newIndex] = key;
+            copy[newIndex + 1] = value;
+            System.arraycopy(content, newIndex, copy, newIndex + 2, oldIndex - newIndex);
+            System.arraycopy(content, oldIndex + 1, copy, oldIndex + 2, content.length - oldIndex - 1);
+            return new BitmapNode<>(dataMap | bit, nodeMap ^ bit, copy);
+        }
+
+        private static <K, V> Node<K, V> mergeEntries(K key0, V value0, int hash0, K key1, V value1, int hash1, int shift) {
+            if (shift >= Integer.SIZE) {
+                // All hash bits are used up, these keys have the same hash
+                return new CollisionNode<>(hash0, new Object[]{key0, value0, key1, value1});
+            }
+            var mask0 = mask(hash0, shift);
+            var mask1 = mask(hash1, shift);
+            if (mask0 != mask1) {
+                var dataMap = (1 << mask0) | (1 << mask1);
+                if (mask0 < mask1) {
+                    return new BitmapNode<>(dataMap, 0, new Object[]{key0, value0, key1, value1});
+                } else {
+                    return new BitmapNode<>(dataMap, 0, new Object[]{key1, value1, key0, value0});
+                }
+            }
+            var subNode = mergeEntries(key0, value0, hash0, key1, value1, hash1, shift + BITS);
+            return new BitmapNode<>(0, 1 << mask0, new Object[]{subNode});
+        }
+    }
+
+    /**
+     * A node at the bottom of the trie, for keys that have exactly the same hash.
+     */
+    private static final class CollisionNode<K, V> extends Node<K, V> {
+
+        private final int hash;
+        private final Object[] content;
+
+        private CollisionNode(int hash, Object[] content) {
+            this.hash = hash;
+            this.content = content;
+        }
+
+        @Override
+        V find(Object key, int hash, int shift) {
+            var index = indexOf(key);
+            return index < 0 ? null : valueAt(index);
+        }
+
+        @Override
+        Node<K, V> put(K key, V value, int hash, int shift, Change change) {
+            var index = indexOf(key);
+            if (index >= 0) {
+                if (valueAt(index) == value) {
+                    return this;
+                }
+                var copy = content.clone();
+                copy[2 * index + 1] = value;
+                return new CollisionNode<>(this.hash, copy);
+            }
+            change.added = true;
+            var copy = new Object[content.length + 2];
+            System.arraycopy(content, 0, copy, 0, content.length);
+            copy[content.length] = key;
+            copy[content.length + 1] = value;
+            return new CollisionNode<>(this.hash, copy);
+        }
+
+        @Override
+        Node<K, V> remove(Object key, int hash, int shift) {
+            var index = indexOf(key);
+            if (index < 0) {
+                return this;
+            }
+            if (dataArity() == 2) {
+                // The parent node inlines single entry nodes, so the bitmap position does not matter here
+                var remaining = 1 - index;
+                return new BitmapNode<>(1, 0, new Object[]{keyAt(remaining), valueAt(remaining)});
+            }
+            var copy = new Object[content.length - 2];
+            System.arraycopy(content, 0, copy, 0, 2 * index);
+            System.arraycopy(content, 2 * index + 2, copy, 2 * index, content.length - 2 * index - 2);
+            return new CollisionNode<>(this.hash, copy);
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < dataArity(); i++) {
+                if (key.equals(keyAt(i))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        int dataArity() {
+            return content.length / 2;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        K keyAt(int index) {
+            return (K) content[2 * index];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        V valueAt(int index) {
+            return (V) content[2 * index + 1];
+        }
+
+        @Override
+        int nodeArity() {
+            return 0;
+        }
+
+        @Override
+        Node<K, V> nodeAt(int index) {
+            throw new IndexOutOfBoundsException(index);
+        }
+    }
+
+    /**
+     * Depth-first iterator over all entries in the trie. The inline entries of a node are visited before its
+     * sub-nodes.
+     */
+    private abstract static class TrieIterator<K, V, E> implements Iterator<E> {
+
+        @SuppressWarnings("unchecked")
+        private final Node<K, V>[] nodes = new Node[MAX_DEPTH];
+        private final int[] nodeCursors = new int[MAX_DEPTH];
+        private int depth = -1;
+
+        private Node<K, V> dataNode;
+        private int dataCursor;
+        private int dataLength;
+
+        TrieIterator(Node<K, V> root) {
+            push(root);
+        }
+
+        abstract E item(Node<K, V> node, int index);
+
+        private void push(Node<K, V> node) {
+            depth++;
+            nodes[depth] = node;
+            nodeCursors[depth] = 0;
+            dataNode = node;
+            dataCursor = 0;
+            dataLength = node.dataArity();
+        }
+
+        private boolean advance() {
+            while (depth >= 0) {
+                var node = nodes[depth];
+                if (nodeCursors[depth] < node.nodeArity()) {
+                    push(node.nodeAt(nodeCursors[depth]++));
+                    return true;
+                }
+                nodes[depth] = null;
+                depth--;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (dataCursor >= dataLength) {
+                if (!advance()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return item(dataNode, dataCursor++);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.contentgrid.configuration.api.lookup;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+/**
+ * An immutable hash set, backed by a {@link PersistentHashMap}.
+ * <p>
+ * Every modification returns a new set that shares its structure with the original one, so adding or removing an
+ * element costs O(log<sub>32</sub> n). Adding an element that is equal to an element that is already present replaces
+ * that element.
+ *
+ * @param <T> the type of elements
+ */
+final class PersistentHashSet<T> extends AbstractSet<T> {
+
+    private static final PersistentHashSet<?> EMPTY = new PersistentHashSet<>(PersistentHashMap.empty());
+
+    private final PersistentHashMap<T, T> elements;
+
+    private PersistentHashSet(PersistentHashMap<T, T> elements) {
+        this.elements = elements;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> PersistentHashSet<T> empty() {
+        return (PersistentHashSet<T>) EMPTY;
+    }
+
+    static <T> PersistentHashSet<T> of(T element) {
+        return PersistentHashSet.<T>empty().plus(element);
+    }
+
+    /**
+     * @return a new set that also contains {@code element}, or this set when this exact instance is already present
+     */
+    PersistentHashSet<T> plus(T element) {
+        var newElements = elements.plus(element, element);
+        return newElements == elements ? this : new PersistentHashSet<>(newElements);
+    }
+
+    /**
+     * @return a new set without {@code element}, or this set when it is not present
+     */
+    PersistentHashSet<T> minus(Object element) {
+        var newElements = elements.minus(element);
+        return newElements == elements ? this : new PersistentHashSet<>(newElements);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return elements.containsKey(o);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        // The values always hold the most recently added instance
+        return elements.values().iterator();
+    }
+
+    @Override
+    public int size() {
+        return elements.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return elements.isEmpty();
+    }
+}
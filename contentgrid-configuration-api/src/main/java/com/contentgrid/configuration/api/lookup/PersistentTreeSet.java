@@ -0,0 +1,222 @@
+package com.contentgrid.configuration.api.lookup;
+
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable sorted set, implemented as a persistent AVL tree.
+ * <p>
+ * Every modification returns a new set that shares all untouched subtrees with the original one, so adding or removing
+ * an element costs O(log n). Iterating over a range of elements costs O(log n + k) for k elements.
+ *
+ * @param <T> the type of elements
+ */
+final class PersistentTreeSet<T> extends AbstractSet<T> {
+
+    private final Comparator<? super T> comparator;
+    private final Node<T> root;
+    private final int size;
+
+    private PersistentTreeSet(Comparator<? super T> comparator, Node<T> root, int size) {
+        this.comparator = comparator;
+        this.root = root;
+        this.size = size;
+    }
+
+    static <T> PersistentTreeSet<T> empty(Comparator<? super T> comparator) {
+        return new PersistentTreeSet<>(comparator, null, 0);
+    }
+
+    Comparator<? super T> comparator() {
+        return comparator;
+    }
+
+    /**
+     * @return a new set that also contains {@code element}, or this set when an equal element is already present
+     */
+    PersistentTreeSet<T> plus(T element) {
+        var newRoot = insert(root, element);
+        return newRoot == root ? this : new PersistentTreeSet<>(comparator, newRoot, size + 1);
+    }
+
+    /**
+     * @return a new set without {@code element}, or this set when it is not present
+     */
+    @SuppressWarnings("unchecked")
+    PersistentTreeSet<T> minus(Object element) {
+        var newRoot = delete(root, (T) element);
+        return newRoot == root ? this : new PersistentTreeSet<>(comparator, newRoot, size - 1);
+    }
+
+    /**
+     * Iterates over all elements between {@code fromInclusive} and {@code toExclusive}, in order
+     *
+     * @param fromInclusive the lowest element, or {@code null} to start at the first element
+     * @param toExclusive the element to stop at, or {@code null} to continue until the last element
+     */
+    Iterator<T> range(T fromInclusive, T toExclusive) {
+        return new RangeIterator<>(root, comparator, fromInclusive, toExclusive);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        var node = root;
+        while (node != null) {
+            int cmp = comparator.compare((T) o, node.value);
+            if (cmp == 0) {
+                return true;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return range(null, null);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private Node<T> insert(Node<T> node, T element) {
+        if (node == null) {
+            return new Node<>(element, null, null);
+        }
+        int cmp = comparator.compare(element, node.value);
+        if (cmp < 0) {
+            var left = insert(node.left, element);
+            return left == node.left ? node : balance(node.value, left, node.right);
+        } else if (cmp > 0) {
+            var right = insert(node.right, element);
+            return right == node.right ? node : balance(node.value, node.left, right);
+        }
+        return node;
+    }
+
+    private Node<T> delete(Node<T> node, T element) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = comparator.compare(element, node.value);
+        if (cmp < 0) {
+            var left = delete(node.left, element);
+            return left == node.left ? node : balance(node.value, left, node.right);
+        } else if (cmp > 0) {
+            var right = delete(node.right, element);
+            return right == node.right ? node : balance(node.value, node.left, right);
+        }
+
+        if (node.left == null) {
+            return node.right;
+        } else if (node.right == null) {
+            return node.left;
+        }
+        // Replace the removed value with its successor
+        var successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.value, node.left, deleteFirst(node.right));
+    }
+
+    private static <T> Node<T> deleteFirst(Node<T> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.value, deleteFirst(node.left), node.right);
+    }
+
+    private static <T> Node<T> balance(T value, Node<T> left, Node<T> right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node<>(left.value, left.left, new Node<>(value, left.right, right));
+            }
+            return new Node<>(left.right.value,
+                    new Node<>(left.value, left.left, left.right.left),
+                    new Node<>(value, left.right.right, right));
+        }
+        if (rightHeight > leftHeight + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node<>(right.value, new Node<>(value, left, right.left), right.right);
+            }
+            return new Node<>(right.left.value,
+                    new Node<>(value, left, right.left.left),
+                    new Node<>(right.value, right.left.right, right.right));
+        }
+        return new Node<>(value, left, right);
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static final class Node<T> {
+        private final T value;
+        private final Node<T> left;
+        private final Node<T> right;
+        private final int height;
+
+        private Node(T value, Node<T> left, Node<T> right) {
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+
+    private static final class RangeIterator<T> implements Iterator<T> {
+        private final Comparator<? super T> comparator;
+        private final T toExclusive;
+        // The path of nodes that still have to be visited, the next one on top
+        private final Deque<Node<T>> stack = new ArrayDeque<>();
+
+        private RangeIterator(Node<T> root, Comparator<? super T> comparator, T fromInclusive, T toExclusive) {
+            this.comparator = comparator;
+            this.toExclusive = toExclusive;
+
+            var node = root;
+            while (node != null) {
+                if (fromInclusive != null && comparator.compare(node.value, fromInclusive) < 0) {
+                    node = node.right;
+                } else {
+                    stack.push(node);
+                    node = node.left;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty() && (toExclusive == null || comparator.compare(stack.peek().value, toExclusive) < 0);
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            var node = stack.pop();
+            var next = node.right;
+            while (next != null) {
+                stack.push(next);
+                next = next.left;
+            }
+            return node.value;
+        }
+    }
+}
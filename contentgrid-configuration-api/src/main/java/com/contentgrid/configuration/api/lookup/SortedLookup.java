@@ -0,0 +1,41 @@
+package com.contentgrid.configuration.api.lookup;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A {@link Lookup} that keeps its index keys in order, so it can answer range queries without scanning all keys.
+ *
+ * @param <L> the type of index keys
+ * @param <V> the type of the stored values
+ */
+public interface SortedLookup<L, V> extends Lookup<L, V> {
+
+    /**
+     * Returns all index keys between {@code fromInclusive} and {@code toExclusive} together with their values, in order
+     * of their index keys.
+     * <p>
+     * All entries are read from the same version of the index.
+     *
+     * @param fromInclusive the lowest index key, or {@code null} to start at the first index key
+     * @param toExclusive the index key to stop at, or {@code null} to continue until the last index key
+     * @return the index keys in the range, with their values
+     */
+    Stream<Map.Entry<L, Collection<V>>> range(L fromInclusive, L toExclusive);
+
+    /**
+     * Returns all index keys that start with {@code prefix} together with their values, in order of their index keys.
+     * <p>
+     * This requires a lookup that is sorted in the natural order of strings, where all keys that share a prefix are
+     * next to each other.
+     *
+     * @param lookup a lookup in natural string order
+     * @param prefix the prefix of index keys to look up
+     * @return the index keys that start with the prefix, with their values
+     */
+    static <V> Stream<Map.Entry<String, Collection<V>>> prefix(SortedLookup<String, V> lookup, String prefix) {
+        return lookup.range(prefix, null)
+                .takeWhile(entry -> entry.getKey().startsWith(prefix));
+    }
+}
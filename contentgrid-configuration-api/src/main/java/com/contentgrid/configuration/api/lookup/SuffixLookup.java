@@ -0,0 +1,37 @@
+package com.contentgrid.configuration.api.lookup;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * A {@link Lookup} on dot-separated names, like domain names, that can find the index keys that a name is equal to or
+ * a subdomain of.
+ * <p>
+ * For example, the name {@code app.example.com} matches the index keys {@code app.example.com}, {@code example.com}
+ * and {@code com}, but not {@code ple.com}. Names and index keys are compared as-is; normalizing them (for example to
+ * lower case) is up to the caller.
+ *
+ * @param <V> the type of the stored values
+ */
+public interface SuffixLookup<V> extends Lookup<String, V> {
+
+    /**
+     * Finds the most specific index key that {@code name} is equal to or a subdomain of.
+     *
+     * @param name the name to look up
+     * @return the longest matching index key with its values, or an empty optional when no index key matches
+     */
+    Optional<Map.Entry<String, Collection<V>>> longestSuffix(String name);
+
+    /**
+     * Finds all index keys that {@code name} is equal to or a subdomain of, starting with the most specific one.
+     * <p>
+     * All entries are read from the same version of the index.
+     *
+     * @param name the name to look up
+     * @return the matching index keys with their values, longest first
+     */
+    Stream<Map.Entry<String, Collection<V>>> suffixes(String name);
+}
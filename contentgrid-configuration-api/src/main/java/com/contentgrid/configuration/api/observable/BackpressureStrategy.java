@@ -0,0 +1,84 @@
+package com.contentgrid.configuration.api.observable;
+
+import com.contentgrid.configuration.api.observable.Observable.UpdateEvent;
+import java.util.function.Function;
+import lombok.NonNull;
+
+/**
+ * Determines how events are buffered for a subscriber that requests events slower than they are emitted.
+ * <p>
+ * Every subscription gets its own {@link Buffer}, so a slow subscriber only affects itself.
+ *
+ * @param <T> the type of values in the events
+ */
+@FunctionalInterface
+public interface BackpressureStrategy<T> {
+
+    /**
+     * @return a new, empty buffer for a single subscription
+     */
+    Buffer<T> createBuffer();
+
+    /**
+     * Buffers all events, without limit
+     */
+    static <T> BackpressureStrategy<T> unbounded() {
+        return EventBuffers.Unbounded::new;
+    }
+
+    /**
+     * Buffers up to {@code maxSize} events. When the buffer is full, the subscription is terminated with an overflow
+     * error.
+     */
+    static <T> BackpressureStrategy<T> bounded(int maxSize) {
+        EventBuffers.checkMaxSize(maxSize);
+        return () -> new EventBuffers.Bounded<>(maxSize, false);
+    }
+
+    /**
+     * Buffers up to {@code maxSize} events. When the buffer is full, the oldest buffered event is dropped.
+     */
+    static <T> BackpressureStrategy<T> dropOldest(int maxSize) {
+        EventBuffers.checkMaxSize(maxSize);
+        return () -> new EventBuffers.Bounded<>(maxSize, true);
+    }
+
+    /**
+     * Buffers at most one event per key. A new event for a key that still has an event in the buffer is merged with it,
+     * so the subscriber only receives the latest state of every key: an {@link UpdateType#ADD} followed by an
+     * {@link UpdateType#UPDATE} is delivered as an ADD of the latest value, an ADD followed by a
+     * {@link UpdateType#REMOVE} is not delivered at all.
+     * <p>
+     * The buffer is bounded by the number of distinct keys.
+     *
+     * @param keyFunction extracts the key from the value of an event
+     */
+    static <T> BackpressureStrategy<T> latestPerKey(@NonNull Function<? super T, ?> keyFunction) {
+        return () -> new EventBuffers.LatestPerKey<>(keyFunction);
+    }
+
+    /**
+     * The events that are not yet requested by a single subscriber.
+     * <p>
+     * Buffers are only accessed by one thread at a time.
+     */
+    interface Buffer<T> {
+
+        /**
+         * Adds an event to the buffer
+         *
+         * @return {@code false} when the event can not be buffered, which terminates the subscription with an error
+         */
+        boolean offer(UpdateEvent<T> event);
+
+        /**
+         * @return the next event to deliver, or {@code null} when the buffer is empty
+         */
+        UpdateEvent<T> poll();
+
+        /**
+         * @return the number of buffered events
+         */
+        int size();
+    }
+}
@@ -0,0 +1,272 @@
+package com.contentgrid.configuration.api.observable;
+
+import com.contentgrid.configuration.api.observable.BackpressureStrategy.Buffer;
+import com.contentgrid.configuration.api.observable.Observable.UpdateEvent;
+import com.contentgrid.configuration.api.observable.Observable.UpdateType;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.FluxSink.OverflowStrategy;
+
+/**
+ * The {@link Buffer} implementations of {@link BackpressureStrategy}, and the operator that applies them to a flux
+ */
+final class EventBuffers {
+
+    private EventBuffers() {
+    }
+
+    static void checkMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive, but was %d".formatted(maxSize));
+        }
+    }
+
+    /**
+     * Requests all events from {@code source} and buffers them for every subscriber according to {@code strategy}, until
+     * the subscriber requests them.
+     *
+     * @param bufferSizeListener is notified of the size of the buffer every time an event is added to it
+     */
+    static <T> Flux<UpdateEvent<T>> buffer(
+            Flux<UpdateEvent<T>> source,
+            BackpressureStrategy<T> strategy,
+            IntConsumer bufferSizeListener
+    ) {
+        return buffer(source, strategy, bufferSizeListener, Collections::emptyIterator);
+    }
+
+    /**
+     * Like {@link #buffer(Flux, BackpressureStrategy, IntConsumer)}, but first delivers {@code initialEvents} to every
+     * subscriber.
+     * <p>
+     * On subscription, {@code source} is subscribed to before {@code initialEvents} is called, so no event from
+     * {@code source} is missed in between. Nothing is subscribed to or buffered before the returned flux is subscribed
+     * to. The initial events are not counted in the buffer, they are iterated lazily as the subscriber requests them.
+     */
+    static <T> Flux<UpdateEvent<T>> buffer(
+            Flux<UpdateEvent<T>> source,
+            BackpressureStrategy<T> strategy,
+            IntConsumer bufferSizeListener,
+            Supplier<Iterator<UpdateEvent<T>>> initialEvents
+    ) {
+        return Flux.create(downstream -> {
+            var subscriber = new BufferingSubscriber<>(strategy.createBuffer(), downstream, bufferSizeListener);
+            downstream.onRequest(requested -> subscriber.drain());
+            downstream.onDispose(source.subscribe(subscriber::next, subscriber::error, subscriber::complete));
+            subscriber.start(initialEvents.get());
+        }, OverflowStrategy.IGNORE);
+    }
+
+    /**
+     * Merges two consecutive events for the same key into one event that has the same effect for the subscriber
+     *
+     * @return the merged event, or {@code null} when the events cancel each other out
+     */
+    static <T> UpdateEvent<T> merge(UpdateEvent<T> first, UpdateEvent<T> second) {
+        if (first.getType() == UpdateType.ADD) {
+            return switch (second.getType()) {
+                // The subscriber has never seen the value, so it is still new
+                case ADD, UPDATE -> new UpdateEvent<>(UpdateType.ADD, second.getValue(), second.getSequence());
+                case REMOVE -> null;
+            };
+        }
+        if (first.getType() == UpdateType.REMOVE && second.getType() != UpdateType.REMOVE) {
+            // The subscriber still has the removed value
+            return new UpdateEvent<>(UpdateType.UPDATE, second.getValue(), second.getSequence());
+        }
+        return second;
+    }
+
+    @RequiredArgsConstructor
+    private static class BufferingSubscriber<T> {
+        private final Buffer<T> buffer;
+        private final FluxSink<UpdateEvent<T>> downstream;
+        private final IntConsumer bufferSizeListener;
+
+        private final AtomicInteger draining = new AtomicInteger();
+        // Nothing is delivered until the initial events are known
+        private volatile Iterator<UpdateEvent<T>> initialEvents;
+        private volatile boolean overflow;
+        private volatile boolean done;
+        private Throwable error;
+
+        void start(Iterator<UpdateEvent<T>> initialEvents) {
+            this.initialEvents = initialEvents;
+            drain();
+        }
+
+        void next(UpdateEvent<T> event) {
+            int size;
+            synchronized (buffer) {
+                if (overflow || !buffer.offer(event)) {
+                    overflow = true;
+                }
+                size = buffer.size();
+            }
+            bufferSizeListener.accept(size);
+            drain();
+        }
+
+        void error(Throwable throwable) {
+            error = throwable;
+            done = true;
+            drain();
+        }
+
+        void complete() {
+            done = true;
+            drain();
+        }
+
+        void drain() {
+            if (draining.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (overflow) {
+                    synchronized (buffer) {
+                        while (buffer.poll() != null) {
+                            // Discard everything, the subscriber will not receive it anymore
+                        }
+                    }
+                    downstream.error(Exceptions.failWithOverflow("Subscriber did not keep up with the events"));
+                    return;
+                }
+                var initial = initialEvents;
+                if (initial == null) {
+                    missed = draining.addAndGet(-missed);
+                    continue;
+                }
+                while (downstream.requestedFromDownstream() > 0 && !downstream.isCancelled()) {
+                    UpdateEvent<T> event;
+                    if (initial.hasNext()) {
+                        event = initial.next();
+                    } else {
+                        synchronized (buffer) {
+                            event = buffer.poll();
+                        }
+                    }
+                    if (event == null) {
+                        break;
+                    }
+                    downstream.next(event);
+                }
+                if (done && !initial.hasNext() && isEmpty()) {
+                    if (error != null) {
+                        downstream.error(error);
+                    } else {
+                        downstream.complete();
+                    }
+                    return;
+                }
+                missed = draining.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private boolean isEmpty() {
+            synchronized (buffer) {
+                return buffer.size() == 0;
+            }
+        }
+    }
+
+    static class Unbounded<T> implements Buffer<T> {
+        private final ArrayDeque<UpdateEvent<T>> events = new ArrayDeque<>();
+
+        @Override
+        public boolean offer(UpdateEvent<T> event) {
+            events.add(event);
+            return true;
+        }
+
+        @Override
+        public UpdateEvent<T> poll() {
+            return events.poll();
+        }
+
+        @Override
+        public int size() {
+            return events.size();
+        }
+    }
+
+    @RequiredArgsConstructor
+    static class Bounded<T> implements Buffer<T> {
+        private final ArrayDeque<UpdateEvent<T>> events = new ArrayDeque<>();
+        private final int maxSize;
+        private final boolean dropOldest;
+
+        @Override
+        public boolean offer(UpdateEvent<T> event) {
+            if (events.size() >= maxSize) {
+                if (!dropOldest) {
+                    return false;
+                }
+                events.poll();
+            }
+            events.add(event);
+            return true;
+        }
+
+        @Override
+        public UpdateEvent<T> poll() {
+            return events.poll();
+        }
+
+        @Override
+        public int size() {
+            return events.size();
+        }
+    }
+
+    @RequiredArgsConstructor
+    static class LatestPerKey<T> implements Buffer<T> {
+        private final Function<? super T, ?> keyFunction;
+        private final Map<Object, UpdateEvent<T>> events = new LinkedHashMap<>();
+
+        @Override
+        public boolean offer(UpdateEvent<T> event) {
+            var key = keyFunction.apply(event.getValue());
+            var buffered = events.get(key);
+            if (buffered == null) {
+                events.put(key, event);
+                return true;
+            }
+            var merged = merge(buffered, event);
+            if (merged == null) {
+                events.remove(key);
+            } else {
+                events.put(key, merged);
+            }
+            return true;
+        }
+
+        @Override
+        public UpdateEvent<T> poll() {
+            Iterator<UpdateEvent<T>> iterator = events.values().iterator();
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            var event = iterator.next();
+            iterator.remove();
+            return event;
+        }
+
+        @Override
+        public int size() {
+            return events.size();
+        }
+    }
+}
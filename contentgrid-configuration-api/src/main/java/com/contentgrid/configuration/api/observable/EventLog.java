@@ -0,0 +1,78 @@
+package com.contentgrid.configuration.api.observable;
+
+import com.contentgrid.configuration.api.observable.Observable.UpdateEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Numbers the events of a {@link Publisher}, and keeps the most recent ones in a ring buffer, so they can be replayed to
+ * subscribers that missed them.
+ */
+final class EventLog<T> {
+
+    private final UpdateEvent<T>[] events;
+    private long lastSequence;
+    // The last sequence number that is not in the log, no events can be replayed from before it
+    private long gapSequence;
+
+    @SuppressWarnings("unchecked")
+    EventLog(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size must not be negative, but was %d".formatted(size));
+        }
+        this.events = new UpdateEvent[size];
+    }
+
+    /**
+     * @return the event with the next sequence number
+     */
+    synchronized UpdateEvent<T> append(UpdateEvent<T> event) {
+        var sequenced = new UpdateEvent<>(event.getType(), event.getValue(), ++lastSequence);
+        if (events.length > 0) {
+            events[(int) (lastSequence % events.length)] = sequenced;
+        }
+        return sequenced;
+    }
+
+    /**
+     * @return the event with the next sequence number, without keeping it in the log
+     */
+    synchronized UpdateEvent<T> appendUnlogged(UpdateEvent<T> event) {
+        gapSequence = ++lastSequence;
+        return new UpdateEvent<>(event.getType(), event.getValue(), lastSequence);
+    }
+
+    /**
+     * Skips a sequence number, for events that are not delivered and not kept in the log
+     */
+    synchronized void appendGap() {
+        gapSequence = ++lastSequence;
+    }
+
+    /**
+     * Passes the sequence number of the last appended event to {@code consumer}, while no event can be appended
+     */
+    synchronized void lastSequence(LongConsumer consumer) {
+        consumer.accept(lastSequence);
+    }
+
+    /**
+     * Returns all events after {@code sequence}, and passes the sequence number of the last of them to
+     * {@code lastSequenceConsumer}, while no event can be appended.
+     *
+     * @return the events after {@code sequence}, or {@code null} when they are not all in the log anymore
+     */
+    synchronized List<UpdateEvent<T>> eventsAfter(long sequence, LongConsumer lastSequenceConsumer) {
+        var oldestSequence = Math.max(1, lastSequence - events.length + 1);
+        if (sequence < oldestSequence - 1 || sequence < gapSequence || sequence > lastSequence) {
+            return null;
+        }
+        var result = new ArrayList<UpdateEvent<T>>((int) (lastSequence - sequence));
+        for (long i = sequence + 1; i <= lastSequence; i++) {
+            result.add(events[(int) (i % events.length)]);
+        }
+        lastSequenceConsumer.accept(lastSequence);
+        return result;
+    }
+}
@@ -0,0 +1,97 @@
+package com.contentgrid.configuration.api.observable;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.NonNull;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.publisher.Sinks.EmitFailureHandler;
+
+/**
+ * A {@link Publisher} that can also be observed for a single key.
+ * <p>
+ * Every key that is observed has its own sink, so an event is only delivered to the subscribers of its own key, instead
+ * of being filtered by every subscriber. A sink is removed again when the last subscriber for its key unsubscribes.
+ *
+ * @param <K> the type of the keys
+ * @param <T> the type of the values
+ */
+public class KeyedPublisher<K, T> extends Publisher<T> {
+
+    private final Function<? super T, ? extends K> keyFunction;
+    private final Function<? super K, ? extends Collection<? extends T>> existingDataForKey;
+
+    private final Map<K, KeyedSink<T>> keyedSinks = new ConcurrentHashMap<>();
+
+    /**
+     * @param keyFunction extracts the key from a value
+     * @param existingDataForKey retrieves the existing data for a single key
+     */
+    public KeyedPublisher(
+            @NonNull Supplier<Collection<? extends T>> existingDataSupplier,
+            @NonNull Function<? super T, ? extends K> keyFunction,
+            @NonNull Function<? super K, ? extends Collection<? extends T>> existingDataForKey,
+            @NonNull BackpressureStrategy<T> backpressureStrategy,
+            int eventLogSize
+    ) {
+        super(existingDataSupplier, backpressureStrategy, eventLogSize);
+        this.keyFunction = keyFunction;
+        this.existingDataForKey = existingDataForKey;
+    }
+
+    /**
+     * Observes an event for the existing data of {@code key}, followed by the new events for {@code key}
+     */
+    public Flux<UpdateEvent<T>> observe(@NonNull K key) {
+        return observe(key, getBackpressureStrategy());
+    }
+
+    public Flux<UpdateEvent<T>> observe(@NonNull K key, @NonNull BackpressureStrategy<T> backpressureStrategy) {
+        return Flux.defer(() -> {
+            var keyedSink = keyedSinks.compute(key, (k, existing) -> {
+                var result = existing == null ? new KeyedSink<T>() : existing;
+                result.subscribers++;
+                return result;
+            });
+            return observe(keyedSink.sink.asFlux(), backpressureStrategy, () -> existingDataForKey.apply(key))
+                    .doFinally(signal -> keyedSinks.computeIfPresent(key, (k, existing) -> {
+                        if (existing != keyedSink) {
+                            return existing;
+                        }
+                        return --existing.subscribers == 0 ? null : existing;
+                    }));
+        });
+    }
+
+    @Override
+    boolean hasSubscribers() {
+        return super.hasSubscribers() || !keyedSinks.isEmpty();
+    }
+
+    @Override
+    void deliver(UpdateEvent<T> event) {
+        super.deliver(event);
+        if (keyedSinks.isEmpty()) {
+            return;
+        }
+        var keyedSink = keyedSinks.get(keyFunction.apply(event.getValue()));
+        if (keyedSink != null) {
+            keyedSink.sink.emitNext(event, EmitFailureHandler.FAIL_FAST);
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        keyedSinks.values().forEach(keyedSink -> keyedSink.sink.emitComplete(EmitFailureHandler.FAIL_FAST));
+    }
+
+    private static class KeyedSink<T> {
+        private final Sinks.Many<UpdateEvent<T>> sink = Sinks.many().multicast().directBestEffort();
+        // Only changed inside of a compute() on the map that holds this sink
+        private int subscribers;
+    }
+}
@@ -0,0 +1,20 @@
+package com.contentgrid.configuration.api.observable;
+
+import lombok.Getter;
+
+/**
+ * Signals that the events after a sequence number can not be replayed, because they are not kept anymore, or because
+ * the sequence number was not issued by this source.
+ * <p>
+ * A subscriber that receives this has to start over with {@link Observable#observe()}.
+ */
+@Getter
+public class MissedEventsException extends IllegalStateException {
+
+    private final long sequence;
+
+    public MissedEventsException(long sequence) {
+        super("Events after sequence %d are not available anymore".formatted(sequence));
+        this.sequence = sequence;
+    }
+}
@@ -1,19 +1,96 @@
 package com.contentgrid.configuration.api.observable;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 import lombok.Value;
 import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
 public interface Observable<T> {
     Flux<UpdateEvent<T>> observe();
 
+    /**
+     * Observes events like {@link #observe()}, but buffers the events that the subscriber did not request yet according
+     * to {@code backpressureStrategy}.
+     * <p>
+     * Implementations that buffer events themselves should override this, so events are buffered only once.
+     */
+    default Flux<UpdateEvent<T>> observe(BackpressureStrategy<T> backpressureStrategy) {
+        return EventBuffers.buffer(observe(), backpressureStrategy, size -> {});
+    }
+
+    /**
+     * Observes events like {@link #observe()}, but delivers them in batches, so a subscriber can apply multiple changes
+     * at once.
+     * <p>
+     * A batch is delivered as soon as it contains {@code maxSize} events, or {@code maxDelay} after its first event was
+     * emitted. Events for existing data are emitted all at once on subscription, so they are delivered in full batches.
+     * <p>
+     * Events are only taken from {@link #observe()} as far as the subscriber requested batches, so the events that a
+     * slow subscriber did not request yet are buffered according to the backpressure strategy of this observable.
+     *
+     * @param maxSize the maximum number of events in a batch
+     * @param maxDelay the maximum time that an event is held back to fill a batch
+     */
+    default Flux<List<UpdateEvent<T>>> observeBatches(int maxSize, Duration maxDelay) {
+        return observe().bufferTimeout(maxSize, maxDelay, true);
+    }
+
+    /**
+     * Observes events like {@link #observe()}, but lets every key settle before delivering its events.
+     * <p>
+     * The first event for a key starts a window. All events for the same key that arrive within the window are merged,
+     * and delivered as one event at the end of the window. An ADD followed by an UPDATE is delivered as an ADD of the
+     * latest value, an ADD followed by a REMOVE is not delivered at all.
+     *
+     * @param keyFunction extracts the key from the value of an event
+     * @param window how long the events for a key are held back
+     */
+    default Flux<UpdateEvent<T>> observeSettled(Function<? super T, ?> keyFunction, Duration window) {
+        return SettleWindow.settle(observe(), keyFunction, window, Schedulers.parallel());
+    }
+
+    /**
+     * Observes the latest state of every key, for example of a {@link com.contentgrid.configuration.api.lookup.Lookup}.
+     * <p>
+     * When a key changes multiple times before the subscriber requests the next event, the subscriber only receives
+     * one event with the newest state of the key, or a {@link UpdateType#REMOVE} when the key is gone. A key that is
+     * added and removed again in the meantime is not delivered at all.
+     * <p>
+     * Events are only merged while the subscriber has no outstanding demand. A subscriber that requests an unbounded
+     * amount of events, or that prefetches a lot of them, like {@link Flux#publishOn}, still receives every event.
+     *
+     * @see BackpressureStrategy#latestPerKey(Function)
+     */
+    static <K, V> Flux<UpdateEvent<Map.Entry<K, V>>> observeLatest(Observable<Map.Entry<K, V>> observable) {
+        return observable.observe(BackpressureStrategy.latestPerKey(Map.Entry::getKey));
+    }
+
     @Value
+    @AllArgsConstructor
     class UpdateEvent<T> {
         UpdateType type;
         T value;
 
+        /**
+         * The position of the event in all events of its source, increasing by one for every event. It is {@code 0} for
+         * events that are not numbered.
+         * <p>
+         * Events are compared by their type and value only.
+         */
+        @EqualsAndHashCode.Exclude
+        long sequence;
+
+        public UpdateEvent(UpdateType type, T value) {
+            this(type, value, 0);
+        }
+
         public <V> UpdateEvent<V> mapValue(Function<T, V> mapper) {
-            return new UpdateEvent<>(type, mapper.apply(value));
+            return new UpdateEvent<>(type, mapper.apply(value), sequence);
         }
     }
 
@@ -1,55 +1,268 @@
 package com.contentgrid.configuration.api.observable;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.function.Supplier;
-import lombok.RequiredArgsConstructor;
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Sinks;
 import reactor.core.publisher.Sinks.EmitFailureHandler;
 
-@RequiredArgsConstructor
 @Slf4j
 public class Publisher<T> implements AutoCloseable, Observable<T> {
     private final Sinks.Many<UpdateEvent<T>> sink;
     private final Supplier<Collection<? extends T>> existingDataSupplier;
+    private final BackpressureStrategy<T> backpressureStrategy;
+    private final EventLog<T> eventLog;
+
+    // Events that are enqueued but not yet delivered, see enqueue() and flush(). Holds an UpdateEvent for every single
+    // event, and a Batch for all events of enqueueAll()
+    private final Queue<Object> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger flushing = new AtomicInteger();
+
+    // The largest number of events that was buffered for a single subscriber
+    private final AtomicInteger bufferHighWaterMark = new AtomicInteger();
 
     public Publisher() {
         this(List::of);
     }
 
     public Publisher(Supplier<Collection<? extends T>> existingDataSupplier) {
-        this(Sinks.many().multicast().directBestEffort(), existingDataSupplier);
+        this(existingDataSupplier, BackpressureStrategy.unbounded());
+    }
+
+    /**
+     * @param backpressureStrategy how events are buffered for subscribers that do not keep up, unless the subscriber
+     * uses {@link #observe(BackpressureStrategy)} to pick its own strategy
+     */
+    public Publisher(Supplier<Collection<? extends T>> existingDataSupplier, BackpressureStrategy<T> backpressureStrategy) {
+        this(existingDataSupplier, backpressureStrategy, 0);
+    }
+
+    /**
+     * @param eventLogSize the number of recent events that are kept, so they can be replayed by
+     * {@link #observeFrom(long)}
+     */
+    public Publisher(
+            Supplier<Collection<? extends T>> existingDataSupplier,
+            BackpressureStrategy<T> backpressureStrategy,
+            int eventLogSize
+    ) {
+        this(Sinks.many().multicast().directBestEffort(), existingDataSupplier, backpressureStrategy, eventLogSize);
+    }
+
+    public Publisher(
+            @NonNull Sinks.Many<UpdateEvent<T>> sink,
+            @NonNull Supplier<Collection<? extends T>> existingDataSupplier,
+            @NonNull BackpressureStrategy<T> backpressureStrategy,
+            int eventLogSize
+    ) {
+        this.sink = sink;
+        this.existingDataSupplier = existingDataSupplier;
+        this.backpressureStrategy = backpressureStrategy;
+        this.eventLog = new EventLog<>(eventLogSize);
     }
 
     public void emit(UpdateEvent<T> event) {
-        sink.emitNext(event, EmitFailureHandler.FAIL_FAST);
+        enqueue(event);
+        flush();
     }
 
     public void emit(UpdateType type, T value) {
         emit(new UpdateEvent<>(type, value));
     }
 
+    /**
+     * Adds an event to the queue of events to deliver, without delivering it yet.
+     * <p>
+     * This allows a caller to enqueue events while holding a lock, so they are ordered the same as the changes they
+     * describe, and to {@link #flush()} them after releasing the lock, so subscribers never run while holding it.
+     */
+    public void enqueue(UpdateEvent<T> event) {
+        pending.add(event);
+    }
+
+    public void enqueue(UpdateType type, T value) {
+        enqueue(new UpdateEvent<>(type, value));
+    }
+
+    /**
+     * Adds an event of the same type for every value to the queue of events to deliver, as a single batch.
+     * <p>
+     * The values are only iterated when the batch is delivered, and not at all when nobody is subscribed at that time.
+     * The events of a batch are not kept in the event log, so {@link #observeFrom(long)} can not resume from before
+     * the end of a batch, and fails with a {@link MissedEventsException} instead.
+     */
+    public void enqueueAll(@NonNull UpdateType type, @NonNull Iterable<? extends T> values) {
+        pending.add(new Batch<>(type, values));
+    }
+
+    /**
+     * Delivers all enqueued events to subscribers, in the order in which they were enqueued. Every delivered event gets
+     * the next {@link UpdateEvent#getSequence() sequence number}.
+     * <p>
+     * Only one thread delivers events at a time. When another thread is already delivering, this returns immediately
+     * and that thread also delivers the events that are enqueued in the meantime.
+     */
+    @SuppressWarnings("unchecked")
+    public void flush() {
+        if (flushing.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Object next;
+            while ((next = pending.poll()) != null) {
+                if (next instanceof Batch<?> batch) {
+                    deliver((Batch<T>) batch);
+                } else {
+                    deliver(eventLog.append((UpdateEvent<T>) next));
+                }
+            }
+            missed = flushing.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    boolean hasSubscribers() {
+        return sink.currentSubscriberCount() > 0;
+    }
+
+    /**
+     * Delivers a numbered event to subscribers. Only called by one thread at a time.
+     */
+    void deliver(UpdateEvent<T> event) {
+        sink.emitNext(event, EmitFailureHandler.FAIL_FAST);
+    }
+
+    private void deliver(Batch<T> batch) {
+        if (!hasSubscribers()) {
+            eventLog.appendGap();
+            return;
+        }
+        for (var value : batch.values) {
+            deliver(eventLog.appendUnlogged(new UpdateEvent<>(batch.type, value)));
+        }
+    }
+
+    BackpressureStrategy<T> getBackpressureStrategy() {
+        return backpressureStrategy;
+    }
+
     @Override
     public void close() {
+        flush();
         sink.emitComplete(EmitFailureHandler.FAIL_FAST);
     }
 
+    /**
+     * @return the largest number of events that was buffered for a single subscriber since this publisher was created
+     */
+    public int getBufferHighWaterMark() {
+        return bufferHighWaterMark.get();
+    }
+
+    private void recordBufferSize(int size) {
+        var previous = bufferHighWaterMark.getAndAccumulate(size, Math::max);
+        // Only log when the high-water mark doubles, so a slow subscriber does not flood the log
+        if (Integer.highestOneBit(size) > Integer.highestOneBit(previous) && size >= 64) {
+            log.debug("Subscriber buffer reached a new high-water mark of {} events", size);
+        }
+    }
+
     @Override
     public Flux<UpdateEvent<T>> observe() {
-        var newData = sink.asFlux().share().onBackpressureBuffer();
-        // We subscribe immediately so events emitted between starting the iteration on the existingData and subscribing on newData afterwards are buffered
-        var earlySubscription = newData.subscribe();
-        return Flux.concat(
-                Flux.fromIterable(existingDataSupplier.get())
-                        .map(data -> new UpdateEvent<>(UpdateType.ADD, (T)data))
-                        .doOnNext(event -> log.trace("Emitting synthetic event {}", event)),
-                newData
-                        // Once we have a subscription going on newData, there is no need to keep the early subscription around
-                        .doOnSubscribe((subscription) -> earlySubscription.dispose())
-                        .doOnNext(event -> log.trace("Emitting event {}", event))
-        );
+        return observe(backpressureStrategy);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The events for the existing data all have the sequence number of the last event that was delivered before the
+     * existing data was retrieved, so a subscriber can resume from there with {@link #observeFrom(long)}.
+     */
+    @Override
+    public Flux<UpdateEvent<T>> observe(@NonNull BackpressureStrategy<T> backpressureStrategy) {
+        return observe(sink.asFlux(), backpressureStrategy, existingDataSupplier);
+    }
+
+    /**
+     * Observes an event for every value from {@code existingData}, followed by the new events from {@code source}
+     */
+    Flux<UpdateEvent<T>> observe(
+            Flux<UpdateEvent<T>> source,
+            BackpressureStrategy<T> backpressureStrategy,
+            Supplier<? extends Collection<? extends T>> existingData
+    ) {
+        return observe(source, backpressureStrategy, initialSequence -> {
+            eventLog.lastSequence(initialSequence::set);
+            var sequence = initialSequence.get();
+            return existingData.get()
+                    .stream()
+                    .map(data -> new UpdateEvent<T>(UpdateType.ADD, data, sequence))
+                    .iterator();
+        });
+    }
+
+    /**
+     * Observes only the events after {@code sequence}, followed by new events.
+     * <p>
+     * Unlike {@link #observe()}, this does not emit an event for all existing data, so a subscriber that reconnects
+     * only receives the events that it missed. When those events are not kept anymore, the returned flux fails with a
+     * {@link MissedEventsException}.
+     *
+     * @param sequence the sequence number of the last event that the subscriber received
+     */
+    public Flux<UpdateEvent<T>> observeFrom(long sequence) {
+        return observeFrom(sequence, backpressureStrategy);
+    }
+
+    public Flux<UpdateEvent<T>> observeFrom(long sequence, @NonNull BackpressureStrategy<T> backpressureStrategy) {
+        return observe(sink.asFlux(), backpressureStrategy, initialSequence -> {
+            var events = eventLog.eventsAfter(sequence, initialSequence::set);
+            if (events == null) {
+                throw new MissedEventsException(sequence);
+            }
+            return events.iterator();
+        });
+    }
+
+    /**
+     * @param initialEvents provides the events to deliver before new events, and sets the sequence number up to which
+     * new events are already covered by them
+     */
+    private Flux<UpdateEvent<T>> observe(
+            Flux<UpdateEvent<T>> source,
+            BackpressureStrategy<T> backpressureStrategy,
+            Function<AtomicLong, Iterator<UpdateEvent<T>>> initialEvents
+    ) {
+        return Flux.defer(() -> {
+            // Every subscriber subscribes to new events before it retrieves the initial events, so no event in between
+            // is lost. New events that are already covered by the initial events are skipped. Until the initial events
+            // are retrieved, every new event is covered by them.
+            var initialSequence = new AtomicLong(Long.MAX_VALUE);
+            return EventBuffers.buffer(
+                    source.filter(event -> event.getSequence() > initialSequence.get()),
+                    backpressureStrategy,
+                    this::recordBufferSize,
+                    () -> initialEvents.apply(initialSequence)
+            );
+        }).doOnNext(event -> log.trace("Emitting event {}", event));
+    }
+
+    private static final class Batch<T> {
+        private final UpdateType type;
+        private final Iterable<? extends T> values;
 
+        private Batch(UpdateType type, Iterable<? extends T> values) {
+            this.type = type;
+            this.values = values;
+        }
     }
 }
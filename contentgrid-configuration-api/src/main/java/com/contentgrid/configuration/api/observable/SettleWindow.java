@@ -0,0 +1,146 @@
+package com.contentgrid.configuration.api.observable;
+
+import com.contentgrid.configuration.api.observable.Observable.UpdateEvent;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Holds back the events of every key for a window of time, and only delivers one merged event per key at the end of the
+ * window, see {@link Observable#observeSettled(Function, Duration)}
+ */
+final class SettleWindow<T> {
+
+    private final Function<? super T, ?> keyFunction;
+    private final Duration window;
+    private final Scheduler scheduler;
+    private final FluxSink<UpdateEvent<T>> downstream;
+
+    // The keys that are in their window, with the merged event to deliver at the end of it
+    private final Map<Object, Settling<T>> settling = new HashMap<>();
+
+    private SettleWindow(
+            Function<? super T, ?> keyFunction,
+            Duration window,
+            Scheduler scheduler,
+            FluxSink<UpdateEvent<T>> downstream
+    ) {
+        this.keyFunction = keyFunction;
+        this.window = window;
+        this.scheduler = scheduler;
+        this.downstream = downstream;
+    }
+
+    static <T> Flux<UpdateEvent<T>> settle(
+            Flux<UpdateEvent<T>> source,
+            Function<? super T, ?> keyFunction,
+            Duration window,
+            Scheduler scheduler
+    ) {
+        return Flux.create(downstream -> {
+            var settle = new SettleWindow<>(keyFunction, window, scheduler, downstream);
+            var subscription = source.subscribe(settle::next, settle::error, settle::complete);
+            downstream.onDispose(() -> {
+                subscription.dispose();
+                settle.cancel();
+            });
+        });
+    }
+
+    private void next(UpdateEvent<T> event) {
+        var key = keyFunction.apply(event.getValue());
+        Settling<T> added;
+        synchronized (settling) {
+            var existing = settling.get(key);
+            if (existing != null) {
+                existing.event = existing.event == null ? event : EventBuffers.merge(existing.event, event);
+                return;
+            }
+            added = new Settling<>(event);
+            settling.put(key, added);
+        }
+        // The window starts at the first event, so a key that keeps changing is still delivered once every window
+        var task = scheduler.schedule(() -> release(key), window.toNanos(), TimeUnit.NANOSECONDS);
+        synchronized (settling) {
+            if (settling.get(key) == added) {
+                added.task = task;
+                return;
+            }
+        }
+        // Already released or cancelled before the task could be kept
+        task.dispose();
+    }
+
+    private void release(Object key) {
+        Settling<T> released;
+        synchronized (settling) {
+            released = settling.remove(key);
+        }
+        if (released != null && released.event != null && !downstream.isCancelled()) {
+            downstream.next(released.event);
+        }
+    }
+
+    private void complete() {
+        releaseAll();
+        downstream.complete();
+    }
+
+    private void error(Throwable error) {
+        releaseAll();
+        downstream.error(error);
+    }
+
+    /**
+     * Delivers everything that is still held back, without waiting for the end of the windows
+     */
+    private void releaseAll() {
+        ArrayList<Settling<T>> released;
+        synchronized (settling) {
+            released = new ArrayList<>(settling.values());
+            settling.clear();
+        }
+        for (var settled : released) {
+            settled.cancelTask();
+            if (settled.event != null && !downstream.isCancelled()) {
+                downstream.next(settled.event);
+            }
+        }
+    }
+
+    /**
+     * Drops everything that is still held back, and cancels the end of the windows
+     */
+    private void cancel() {
+        ArrayList<Settling<T>> cancelled;
+        synchronized (settling) {
+            cancelled = new ArrayList<>(settling.values());
+            settling.clear();
+        }
+        cancelled.forEach(Settling::cancelTask);
+    }
+
+    private static class Settling<T> {
+        // null when the events in the window cancel each other out
+        private UpdateEvent<T> event;
+        // The end of the window, null until it is scheduled
+        private Disposable task;
+
+        private Settling(UpdateEvent<T> event) {
+            this.event = event;
+        }
+
+        private void cancelTask() {
+            if (task != null) {
+                task.dispose();
+            }
+        }
+    }
+}
@@ -1,19 +1,25 @@
 package com.contentgrid.configuration.api.fragments;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.awaitility.Awaitility.await;
 
 import com.contentgrid.configuration.api.ComposedConfiguration;
+import com.contentgrid.configuration.api.observable.Observable.UpdateEvent;
 import com.contentgrid.configuration.api.observable.Observable.UpdateType;
 import com.contentgrid.configuration.api.observable.Publisher;
 import com.contentgrid.configuration.api.test.ObservableUtils;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeoutException;
 import lombok.Value;
 import org.awaitility.core.ThrowingRunnable;
 import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
 
 class ComposedConfigurationRepositoryTest {
 
@@ -159,6 +165,264 @@ class ComposedConfigurationRepositoryTest {
         repo.close();
     }
 
+    @Test
+    void replaceAllFragments() throws Exception {
+        var repo = new ComposedConfigurationRepository<String, String, TestConfiguration>(TestConfiguration::merge);
+
+        repo.register(new ConfigurationFragment<>("test", "abc", new TestConfiguration("xyz", Set.of("ZZZ"))));
+        repo.register(new ConfigurationFragment<>("test2", "def", new TestConfiguration("def", Set.of())));
+
+        var events = ObservableUtils.eventsToList(repo);
+        events.clear();
+
+        repo.replaceAll(List.of(
+                new ConfigurationFragment<>("test", "abc", new TestConfiguration("xyz", Set.of("AAA"))),
+                new ConfigurationFragment<>("test3", "abc", new TestConfiguration(null, Set.of("BBB"))),
+                new ConfigurationFragment<>("test4", "ghi", new TestConfiguration("ghi", Set.of()))
+        ));
+
+        assertThat(repo.compositionKeys()).containsExactlyInAnyOrder("abc", "ghi");
+        assertThat(repo.findConfiguration("abc").getConfiguration())
+                .hasValue(new TestConfiguration("xyz", Set.of("AAA", "BBB")));
+
+        // One event per composition key, even though two fragments of 'abc' changed
+        assertThat(events).extracting(UpdateEvent::getType, event -> event.getValue().getCompositionKey())
+                .containsExactlyInAnyOrder(
+                        tuple(UpdateType.UPDATE, "abc"),
+                        tuple(UpdateType.ADD, "ghi"),
+                        tuple(UpdateType.REMOVE, "def")
+                );
+
+        repo.revokeAll(List.of("test", "test3"));
+        assertThat(repo.compositionKeys()).containsExactly("ghi");
+
+        repo.close();
+    }
+
+    @Test
+    void observeFrom() throws Exception {
+        var repo = new ComposedConfigurationRepository<String, String, TestConfiguration>(TestConfiguration::merge);
+
+        repo.register(new ConfigurationFragment<>("test", "abc", new TestConfiguration("xyz", Set.of("ZZZ"))));
+        repo.register(new ConfigurationFragment<>("test2", "def", new TestConfiguration("def", Set.of())));
+
+        // The last event that a subscriber received before disconnecting
+        var sequence = repo.observe().blockFirst().getSequence();
+
+        repo.register(new ConfigurationFragment<>("test3", "abc", new TestConfiguration(null, Set.of("AAA"))));
+        repo.revoke("test2");
+
+        // Only the missed changes are replayed, not all configurations
+        assertThat(repo.observeFrom(sequence).take(2).collectList().block())
+                .extracting(UpdateEvent::getType, event -> event.getValue().getCompositionKey())
+                .containsExactly(
+                        tuple(UpdateType.UPDATE, "abc"),
+                        tuple(UpdateType.REMOVE, "def")
+                );
+
+        repo.close();
+    }
+
+    @Test
+    void observeCompositionKey() throws Exception {
+        var repo = new ComposedConfigurationRepository<String, String, TestConfiguration>(TestConfiguration::merge);
+
+        repo.register(new ConfigurationFragment<>("test", "abc", new TestConfiguration("xyz", Set.of("ZZZ"))));
+        repo.register(new ConfigurationFragment<>("test2", "def", new TestConfiguration("def", Set.of())));
+
+        StepVerifier.create(repo.observe("abc").map(event -> event.getValue().getConfiguration()))
+                .expectNext(Optional.of(new TestConfiguration("xyz", Set.of("ZZZ"))))
+                .then(() -> {
+                    repo.register(new ConfigurationFragment<>("test3", "def", new TestConfiguration(null, Set.of("D"))));
+                    repo.register(new ConfigurationFragment<>("test4", "abc", new TestConfiguration(null, Set.of("A"))));
+                    repo.revoke("test");
+                })
+                // Changes to other composition keys are not delivered
+                .expectNext(
+                        Optional.of(new TestConfiguration("xyz", Set.of("ZZZ", "A"))),
+                        Optional.of(new TestConfiguration(null, Set.of("A")))
+                )
+                .thenCancel()
+                .verify(Duration.ofSeconds(1));
+
+        repo.close();
+    }
+
+    @Test
+    void awaitConfiguration() throws Exception {
+        var repo = new ComposedConfigurationRepository<String, String, TestConfiguration>(TestConfiguration::merge);
+        repo.register(new ConfigurationFragment<>("test", "abc", new TestConfiguration("xyz", Set.of("ZZZ"))));
+
+        // Present already
+        StepVerifier.create(repo.awaitConfiguration("abc", Duration.ofSeconds(1)))
+                .expectNextMatches(composed -> composed.getConfiguration()
+                        .equals(Optional.of(new TestConfiguration("xyz", Set.of("ZZZ")))))
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+
+        // Appears later
+        StepVerifier.create(repo.awaitConfiguration("def", Duration.ofSeconds(1)))
+                .then(() -> {
+                    repo.register(new ConfigurationFragment<>("test2", "ghi", new TestConfiguration("ghi", Set.of())));
+                    repo.register(new ConfigurationFragment<>("test3", "def", new TestConfiguration("def", Set.of())));
+                })
+                .expectNextMatches(composed -> composed.getConfiguration()
+                        .equals(Optional.of(new TestConfiguration("def", Set.of()))))
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+
+        // Never appears
+        StepVerifier.create(repo.awaitConfiguration("jkl", Duration.ofMillis(50)))
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(1));
+
+        repo.close();
+    }
+
+    @Test
+    void awaitConfiguration_emptyComposition() throws Exception {
+        var repo = new ComposedConfigurationRepository<String, String, TestConfiguration>(TestConfiguration::merge);
+        // A fragment without configuration
+        repo.register(new ConfigurationFragment<>("test", "abc", null));
+
+        StepVerifier.create(repo.awaitConfiguration("abc", Duration.ofSeconds(1)))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .then(() -> repo.register(new ConfigurationFragment<>("test2", "abc", new TestConfiguration("xyz", Set.of()))))
+                .expectNextMatches(composed -> composed.getConfiguration()
+                        .equals(Optional.of(new TestConfiguration("xyz", Set.of()))))
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+
+        repo.close();
+    }
+
+    @Test
+    void settleWindow() throws Exception {
+        var repo = new ComposedConfigurationRepository<String, String, TestConfiguration>(
+                TestConfiguration::merge, Duration.ofMillis(100));
+        var events = ObservableUtils.eventsToList(repo);
+
+        // Like a ConfigMap and a Secret of the same application that change together
+        repo.register(new ConfigurationFragment<>("test", "abc", new TestConfiguration("xyz", Set.of("ZZZ"))));
+        repo.register(new ConfigurationFragment<>("test2", "abc", new TestConfiguration(null, Set.of("AAA"))));
+        // Added and removed again within the window
+        repo.register(new ConfigurationFragment<>("test3", "def", new TestConfiguration("def", Set.of())));
+        repo.revoke("test3");
+
+        await().pollDelay(Duration.ofMillis(300)).untilAsserted(() -> {
+            assertThat(events).singleElement().satisfies(event -> {
+                assertThat(event.getType()).isEqualTo(UpdateType.ADD);
+                assertThat(event.getValue().getConfiguration())
+                        .hasValue(new TestConfiguration("xyz", Set.of("ZZZ", "AAA")));
+            });
+        });
+
+        repo.close();
+    }
+
+    @Test
+    void observeFrom_notSettled() throws Exception {
+        var repo = new ComposedConfigurationRepository<String, String, TestConfiguration>(
+                TestConfiguration::merge, Duration.ofSeconds(10));
+
+        repo.register(new ConfigurationFragment<>("test", "abc", new TestConfiguration("xyz", Set.of("ZZZ"))));
+        var sequence = repo.observeFrom(0).blockFirst(Duration.ofSeconds(1)).getSequence();
+
+        repo.register(new ConfigurationFragment<>("test2", "abc", new TestConfiguration(null, Set.of("AAA"))));
+        repo.register(new ConfigurationFragment<>("test3", "def", new TestConfiguration("def", Set.of())));
+        repo.register(new ConfigurationFragment<>("test4", "abc", new TestConfiguration(null, Set.of("BBB"))));
+
+        // Not held back by the settle window, and in sequence order, so every event is a safe point to resume from
+        var events = repo.observeFrom(sequence).take(3).collectList().block(Duration.ofSeconds(1));
+        assertThat(events)
+                .extracting(event -> event.getValue().getCompositionKey())
+                .containsExactly("abc", "def", "abc");
+        assertThat(events)
+                .extracting(UpdateEvent::getSequence)
+                .isSorted()
+                .doesNotHaveDuplicates();
+
+        repo.close();
+    }
+
+    @Test
+    void unchangedConfigurationIsNotEmitted() throws Exception {
+        var repo = new ComposedConfigurationRepository<String, String, TestConfiguration>(TestConfiguration::merge);
+        repo.register(new ConfigurationFragment<>("test", "abc", new TestConfiguration("xyz", Set.of("ZZZ"))));
+
+        var events = ObservableUtils.eventsToList(repo);
+        events.clear();
+
+        // An equal fragment, like after a resync
+        repo.register(new ConfigurationFragment<>("test", "abc", new TestConfiguration("xyz", Set.of("ZZZ"))));
+        // A fragment that does not change the composed configuration
+        repo.register(new ConfigurationFragment<>("test2", "abc", new TestConfiguration(null, Set.of("ZZZ"))));
+
+        assertThat(events).isEmpty();
+
+        repo.register(new ConfigurationFragment<>("test2", "abc", new TestConfiguration(null, Set.of("AAA"))));
+
+        assertThat(events).singleElement().satisfies(event -> {
+            assertThat(event.getType()).isEqualTo(UpdateType.UPDATE);
+            assertThat(event.getValue().getConfiguration())
+                    .hasValue(new TestConfiguration("xyz", Set.of("ZZZ", "AAA")));
+        });
+
+        repo.close();
+    }
+
+    @Test
+    void composedConfigurationIsCached() throws Exception {
+        var repo = new ComposedConfigurationRepository<String, String, TestConfiguration>(TestConfiguration::merge);
+
+        repo.register(new ConfigurationFragment<>("test", "abc", new TestConfiguration("xyz", Set.of("ZZZ"))));
+        repo.register(new ConfigurationFragment<>("test2", "abc", new TestConfiguration(null, Set.of("AAA"))));
+
+        var first = repo.findConfiguration("abc");
+        assertThat(repo.findConfiguration("abc")).isSameAs(first);
+
+        repo.register(new ConfigurationFragment<>("test3", "def", new TestConfiguration("def", Set.of())));
+        assertThat(repo.findConfiguration("abc")).isSameAs(first);
+
+        repo.revoke("test2");
+        var second = repo.findConfiguration("abc");
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getConfiguration()).hasValue(new TestConfiguration("xyz", Set.of("ZZZ")));
+
+        repo.revoke("test");
+        assertThat(repo.findConfiguration("abc").getConfiguration()).isEmpty();
+
+        repo.close();
+    }
+
+    @Test
+    void subscription_batched() throws Exception {
+        var publisher = new Publisher<ConfigurationFragment<String, String, TestConfiguration>>(() -> List.of(
+                new ConfigurationFragment<>("test", "abc", new TestConfiguration("xyz", Set.of())),
+                new ConfigurationFragment<>("test2", "abc", new TestConfiguration(null, Set.of("ZZZ")))
+        ));
+        var repo = new ComposedConfigurationRepository<String, String, TestConfiguration>(TestConfiguration::merge);
+        var events = ObservableUtils.eventsToList(repo);
+
+        // Full batches are applied right away
+        repo.subscribe(publisher, 2, Duration.ofMinutes(1));
+
+        assertThat(repo.findConfiguration("abc").getConfiguration()).hasValue(
+                new TestConfiguration("xyz", Set.of("ZZZ")));
+        // Both existing fragments were registered at once
+        assertThat(events).extracting(UpdateEvent::getType).containsExactly(UpdateType.ADD);
+
+        publisher.emit(UpdateType.REMOVE, new ConfigurationFragment<>("test2", "abc", new TestConfiguration(null, Set.of("ZZZ"))));
+        publisher.emit(UpdateType.ADD, new ConfigurationFragment<>("test3", "abc", new TestConfiguration(null, Set.of("AAA"))));
+
+        assertThat(repo.findConfiguration("abc").getConfiguration()).hasValue(
+                new TestConfiguration("xyz", Set.of("AAA")));
+
+        publisher.close();
+        repo.close();
+    }
+
     @Test
     void subscription() throws Exception {
         var publisher = new Publisher<ConfigurationFragment<String, String, TestConfiguration>>();
@@ -1,15 +1,27 @@
 package com.contentgrid.configuration.api.lookup;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import com.contentgrid.configuration.api.observable.MissedEventsException;
+import com.contentgrid.configuration.api.observable.Observable;
 import com.contentgrid.configuration.api.observable.Observable.UpdateEvent;
 import com.contentgrid.configuration.api.observable.Observable.UpdateType;
 import com.contentgrid.configuration.api.observable.Publisher;
 import com.contentgrid.configuration.api.test.ObservableUtils;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
 
 class ConcurrentLookupTest {
 
@@ -110,6 +122,198 @@ class ConcurrentLookupTest {
         assertThat(letterLookup.get("b")).isEmpty();
     }
 
+    @Test
+    void batchOperations() {
+        var map = new ConcurrentLookup<String, String>(String::toUpperCase);
+        var lengthLookup = map.createLookup(String::length);
+        map.add("foo");
+
+        var events = ObservableUtils.eventsToList(map);
+        var lookupEvents = ObservableUtils.eventsToList(lengthLookup);
+        events.clear();
+        lookupEvents.clear();
+
+        map.addAll(List.of("bar", "baz", "Foo", "foobar"));
+
+        assertThat(map.keys()).containsExactlyInAnyOrder("FOO", "BAR", "BAZ", "FOOBAR");
+        assertThat(events).containsExactly(
+                new UpdateEvent<>(UpdateType.ADD, Map.entry("BAR", "bar")),
+                new UpdateEvent<>(UpdateType.ADD, Map.entry("BAZ", "baz")),
+                new UpdateEvent<>(UpdateType.UPDATE, Map.entry("FOO", "Foo")),
+                new UpdateEvent<>(UpdateType.ADD, Map.entry("FOOBAR", "foobar"))
+        );
+        // Only one event per index key
+        assertThat(lookupEvents).containsExactly(
+                new UpdateEvent<>(UpdateType.UPDATE, Map.entry(3, Set.of("Foo", "bar", "baz"))),
+                new UpdateEvent<>(UpdateType.ADD, Map.entry(6, Set.of("foobar")))
+        );
+
+        events.clear();
+        lookupEvents.clear();
+
+        map.replaceAll(List.of("bar", "qux"));
+
+        assertThat(map.keys()).containsExactlyInAnyOrder("BAR", "QUX");
+        assertThat(lengthLookup.get(3)).containsExactlyInAnyOrder("bar", "qux");
+        // 'bar' is stored again unchanged, so there is no event for it
+        assertThat(events).containsExactlyInAnyOrder(
+                new UpdateEvent<>(UpdateType.ADD, Map.entry("QUX", "qux")),
+                new UpdateEvent<>(UpdateType.REMOVE, Map.entry("FOO", "Foo")),
+                new UpdateEvent<>(UpdateType.REMOVE, Map.entry("BAZ", "baz")),
+                new UpdateEvent<>(UpdateType.REMOVE, Map.entry("FOOBAR", "foobar"))
+        );
+        assertThat(lookupEvents).containsExactlyInAnyOrder(
+                new UpdateEvent<>(UpdateType.UPDATE, Map.entry(3, Set.of("bar", "qux"))),
+                new UpdateEvent<>(UpdateType.REMOVE, Map.entry(6, Set.of("foobar")))
+        );
+
+        events.clear();
+        lookupEvents.clear();
+
+        map.removeAll(List.of("BAR", "QUX", "NOPE"));
+
+        assertThat(map.size()).isZero();
+        assertThat(events).containsExactly(
+                new UpdateEvent<>(UpdateType.REMOVE, Map.entry("BAR", "bar")),
+                new UpdateEvent<>(UpdateType.REMOVE, Map.entry("QUX", "qux"))
+        );
+        assertThat(lookupEvents).containsExactly(
+                new UpdateEvent<>(UpdateType.REMOVE, Map.entry(3, Set.of("bar", "qux")))
+        );
+    }
+
+    @Test
+    void replaceAllIsTransactional() {
+        var map = new ConcurrentLookup<String, String>(str -> str.isEmpty() ? null : str.toUpperCase());
+        map.add("foo");
+
+        assertThatThrownBy(() -> map.replaceAll(List.of("bar", ""))).isInstanceOf(NullPointerException.class);
+
+        assertThat(map.keys()).containsExactly("FOO");
+    }
+
+    @Test
+    void clear() {
+        var map = new ConcurrentLookup<String, String>(String::toUpperCase);
+        var lengthLookup = map.createLookup(String::length);
+        map.addAll(List.of("foo", "bar", "foobar"));
+        var snapshot = map.snapshot();
+
+        var events = ObservableUtils.eventsToList(map);
+        var lookupEvents = ObservableUtils.eventsToList(lengthLookup);
+        events.clear();
+        lookupEvents.clear();
+
+        map.clear();
+
+        assertThat(map.size()).isZero();
+        assertThat(lengthLookup.keys()).isEmpty();
+        assertThat(snapshot.get(lengthLookup, 3)).containsExactlyInAnyOrder("foo", "bar");
+        assertThat(events).containsExactlyInAnyOrder(
+                new UpdateEvent<>(UpdateType.REMOVE, Map.entry("FOO", "foo")),
+                new UpdateEvent<>(UpdateType.REMOVE, Map.entry("BAR", "bar")),
+                new UpdateEvent<>(UpdateType.REMOVE, Map.entry("FOOBAR", "foobar"))
+        );
+        assertThat(lookupEvents).containsExactlyInAnyOrder(
+                new UpdateEvent<>(UpdateType.REMOVE, Map.entry(3, Set.of("foo", "bar"))),
+                new UpdateEvent<>(UpdateType.REMOVE, Map.entry(6, Set.of("foobar")))
+        );
+
+        // The index keeps working after it has been cleared
+        map.add("baz");
+        assertThat(lengthLookup.get(3)).containsExactly("baz");
+    }
+
+    @Test
+    void snapshot() {
+        var map = new ConcurrentLookup<String, String>(String::toUpperCase);
+        var lengthLookup = map.createLookup(String::length);
+
+        map.add("foo");
+        var snapshot = map.snapshot();
+
+        map.add("bar");
+        map.add("foobar");
+
+        assertThat(snapshot.size()).isEqualTo(1);
+        assertThat(snapshot.keys()).containsExactly("FOO");
+        assertThat(snapshot.get(lengthLookup, 3)).containsExactly("foo");
+        assertThat(snapshot.keys(lengthLookup)).containsExactly(3);
+
+        var current = map.snapshot();
+        assertThat(current.getVersion()).isGreaterThan(snapshot.getVersion());
+        assertThat(current.stream()).containsExactlyInAnyOrder("foo", "bar", "foobar");
+        assertThat(current.get(lengthLookup, 3)).containsExactlyInAnyOrder("foo", "bar");
+        assertThat(current.keys(lengthLookup)).containsExactlyInAnyOrder(3, 6);
+
+        var otherLookup = new ConcurrentLookup<String, String>(String::toUpperCase).createLookup(String::length);
+        assertThatThrownBy(() -> current.get(otherLookup, 3)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void indexFunctionIsOnlyEvaluatedOnStore() {
+        var map = new ConcurrentLookup<String, String>(String::toUpperCase);
+        var invocations = new AtomicInteger();
+        // A non-deterministic index function: every evaluation returns a different key
+        var lookup = map.createLookup(str -> str + invocations.incrementAndGet());
+
+        map.add("foo");
+        assertThat(lookup.keys()).containsExactly("foo1");
+
+        map.add("Foo");
+        assertThat(lookup.keys()).containsExactly("Foo2");
+
+        map.remove("FOO");
+        assertThat(lookup.keys()).isEmpty();
+        assertThat(invocations).hasValue(2);
+    }
+
+    @Test
+    void createSortedLookup() {
+        var map = new ConcurrentLookup<String, String>(String::toUpperCase);
+
+        map.addAll(List.of("apple", "apricot", "banana", "blueberry", "cherry"));
+        var sortedLookup = map.createSortedLookup(String::toLowerCase, Comparator.naturalOrder());
+        map.add("Avocado");
+
+        assertThat(sortedLookup.range("apricot", "blueberry")).extracting(Map.Entry::getKey)
+                .containsExactly("apricot", "avocado", "banana");
+        assertThat(sortedLookup.range("c", null)).extracting(Map.Entry::getKey)
+                .containsExactly("cherry");
+        assertThat(SortedLookup.prefix(sortedLookup, "ap")).extracting(Map.Entry::getKey)
+                .containsExactly("apple", "apricot");
+
+        map.remove("APRICOT");
+        assertThat(SortedLookup.prefix(sortedLookup, "a")).extracting(Map.Entry::getKey)
+                .containsExactly("apple", "avocado");
+        assertThat(sortedLookup.get("avocado")).containsExactly("Avocado");
+    }
+
+    @Test
+    void createSuffixLookup() {
+        var map = new ConcurrentLookup<String, String>(String::toUpperCase);
+        var suffixLookup = map.createSuffixMultiLookup(str -> Arrays.stream(str.split(",")));
+
+        map.add("example.com");
+        map.add("app.example.com,app.example.org");
+
+        assertThat(suffixLookup.longestSuffix("app.example.com")).hasValueSatisfying(entry -> {
+            assertThat(entry.getKey()).isEqualTo("app.example.com");
+            assertThat(entry.getValue()).containsExactly("app.example.com,app.example.org");
+        });
+        assertThat(suffixLookup.longestSuffix("api.app.example.com")).map(Map.Entry::getKey)
+                .hasValue("app.example.com");
+        assertThat(suffixLookup.longestSuffix("other.example.com")).map(Map.Entry::getKey)
+                .hasValue("example.com");
+        assertThat(suffixLookup.longestSuffix("badexample.com")).isEmpty();
+        assertThat(suffixLookup.longestSuffix("example.org")).isEmpty();
+        assertThat(suffixLookup.suffixes("api.app.example.com")).extracting(Map.Entry::getKey)
+                .containsExactly("app.example.com", "example.com");
+
+        map.remove("EXAMPLE.COM");
+        assertThat(suffixLookup.longestSuffix("other.example.com")).isEmpty();
+    }
+
     @Test
     void subscribe() {
         var map = new ConcurrentLookup<String, String>(String::toUpperCase);
@@ -195,6 +399,177 @@ class ConcurrentLookupTest {
         );
     }
 
+    @Test
+    void eventsAreDeliveredOutsideOfTheWriteLock() throws Exception {
+        var map = new ConcurrentLookup<String, String>(String::toUpperCase);
+        var events = new CopyOnWriteArrayList<String>();
+        var subscriberBlocked = new CountDownLatch(1);
+        var releaseSubscriber = new CountDownLatch(1);
+
+        map.observe().subscribe(event -> {
+            if (event.getValue().getKey().equals("FOO")) {
+                subscriberBlocked.countDown();
+                try {
+                    releaseSubscriber.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            events.add(event.getValue().getKey());
+        });
+
+        var writer = CompletableFuture.runAsync(() -> map.add("foo"));
+        subscriberBlocked.await();
+
+        // The subscriber is still busy with 'foo', but that does not block other writers
+        map.add("bar");
+        assertThat(map.keys()).containsExactlyInAnyOrder("FOO", "BAR");
+        assertThat(events).isEmpty();
+
+        releaseSubscriber.countDown();
+        writer.get(1, TimeUnit.SECONDS);
+
+        // The thread that was delivering events also delivered the event that was enqueued in the meantime
+        assertThat(events).containsExactly("FOO", "BAR");
+    }
+
+    @Test
+    void close() throws Exception {
+        var map = new ConcurrentLookup<String, String>(String::toUpperCase);
+        var byLength = map.createLookup(String::length);
+        map.add("foo");
+
+        var mapEvents = StepVerifier.create(map.observe())
+                .expectNext(new UpdateEvent<>(UpdateType.ADD, Map.entry("FOO", "foo")))
+                .expectComplete()
+                .verifyLater();
+        var indexEvents = StepVerifier.create(byLength.observe())
+                .expectNext(new UpdateEvent<>(UpdateType.ADD, Map.entry(3, Set.of("foo"))))
+                .expectComplete()
+                .verifyLater();
+
+        map.close();
+
+        mapEvents.verify(Duration.ofSeconds(1));
+        indexEvents.verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void observeLatest() {
+        var map = new ConcurrentLookup<String, String>(item -> item.substring(0, 1));
+
+        StepVerifier.create(Observable.observeLatest(map), 0)
+                .then(() -> {
+                    map.add("a1");
+                    map.add("a2");
+                    map.add("b1");
+                    map.remove("b");
+                    map.add("c1");
+                })
+                .thenRequest(10)
+                .expectNext(
+                        new UpdateEvent<>(UpdateType.ADD, Map.entry("a", "a2")),
+                        new UpdateEvent<>(UpdateType.ADD, Map.entry("c", "c1"))
+                )
+                .thenCancel()
+                .verify(Duration.ofSeconds(1));
+
+        var other = new ConcurrentLookup<String, String>(item -> item.substring(0, 1));
+        var byLength = other.createLookup(String::length);
+
+        StepVerifier.create(Observable.observeLatest(byLength), 0)
+                .then(() -> {
+                    other.add("a1");
+                    other.add("bb1");
+                    other.remove("a");
+                    other.add("c1");
+                })
+                .thenRequest(10)
+                .expectNext(
+                        new UpdateEvent<>(UpdateType.ADD, Map.entry(3, Set.of("bb1"))),
+                        new UpdateEvent<>(UpdateType.ADD, Map.entry(2, Set.of("c1")))
+                )
+                .thenCancel()
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void observeFrom() {
+        var map = new ConcurrentLookup<String, String>(String::toUpperCase);
+        var byLength = map.createLookup(String::length);
+        map.add("foo");
+
+        var sequence = map.observe().blockFirst().getSequence();
+        var indexSequence = byLength.observe().blockFirst().getSequence();
+
+        map.add("bar");
+        map.remove("FOO");
+
+        assertThat(map.observeFrom(sequence).take(2).collectList().block()).containsExactly(
+                new UpdateEvent<>(UpdateType.ADD, Map.entry("BAR", "bar")),
+                new UpdateEvent<>(UpdateType.REMOVE, Map.entry("FOO", "foo"))
+        );
+        assertThat(byLength.observeFrom(indexSequence).take(2).collectList().block()).containsExactly(
+                new UpdateEvent<>(UpdateType.UPDATE, Map.entry(3, Set.of("foo", "bar"))),
+                new UpdateEvent<>(UpdateType.UPDATE, Map.entry(3, Set.of("bar")))
+        );
+    }
+
+    @Test
+    void observeFrom_afterClear() {
+        var map = new ConcurrentLookup<String, String>(String::toUpperCase);
+        map.addAll(List.of("foo", "bar"));
+        var sequence = map.observe().blockFirst().getSequence();
+
+        // Without subscribers, clearing does not create an event for every item
+        map.clear();
+
+        StepVerifier.create(map.observeFrom(sequence))
+                .expectError(MissedEventsException.class)
+                .verify(Duration.ofSeconds(1));
+
+        map.add("baz");
+        var afterClear = map.observe().blockFirst().getSequence();
+        map.add("quux");
+
+        StepVerifier.create(map.observeFrom(afterClear))
+                .expectNext(new UpdateEvent<>(UpdateType.ADD, Map.entry("QUUX", "quux")))
+                .thenCancel()
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void observeLookupKey() {
+        var map = new ConcurrentLookup<String, String>(String::toUpperCase);
+        var byLength = map.createLookup(String::length);
+        map.add("foo");
+        map.add("foobar");
+
+        StepVerifier.create(byLength.observe(3))
+                .expectNext(new UpdateEvent<>(UpdateType.ADD, Map.entry(3, Set.of("foo"))))
+                .then(() -> {
+                    map.add("bazbaz");
+                    map.add("bar");
+                    map.remove("FOO");
+                    map.remove("BAR");
+                })
+                // Events for other keys are not delivered
+                .expectNext(
+                        new UpdateEvent<>(UpdateType.UPDATE, Map.entry(3, Set.of("foo", "bar"))),
+                        new UpdateEvent<>(UpdateType.UPDATE, Map.entry(3, Set.of("bar"))),
+                        new UpdateEvent<>(UpdateType.REMOVE, Map.entry(3, Set.of("bar")))
+                )
+                .thenCancel()
+                .verify(Duration.ofSeconds(1));
+
+        // A key without values starts without an event
+        StepVerifier.create(byLength.observe(4))
+                .then(() -> map.add("quux"))
+                .expectNext(new UpdateEvent<>(UpdateType.ADD, Map.entry(4, Set.of("quux"))))
+                .thenCancel()
+                .verify(Duration.ofSeconds(1));
+    }
+
     @Test
     void observeLookup() {
         var map = new ConcurrentLookup<String, String>(String::toUpperCase);
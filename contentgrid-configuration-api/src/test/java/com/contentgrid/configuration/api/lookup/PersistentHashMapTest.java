@@ -0,0 +1,109 @@
+package com.contentgrid.configuration.api.lookup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class PersistentHashMapTest {
+
+    private record CollidingKey(int hash, String name) {
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    @Test
+    void simpleOperations() {
+        var empty = PersistentHashMap.<String, Integer>empty();
+        var map = empty.plus("foo", 1).plus("bar", 2);
+
+        assertThat(empty).isEmpty();
+        assertThat(map).containsOnlyKeys("foo", "bar");
+        assertThat(map.get("foo")).isEqualTo(1);
+        assertThat(map.get("baz")).isNull();
+
+        var updated = map.plus("foo", 3);
+        assertThat(updated.get("foo")).isEqualTo(3);
+        assertThat(map.get("foo")).isEqualTo(1);
+        assertThat(updated).hasSize(2);
+
+        var removed = updated.minus("bar");
+        assertThat(removed).containsOnlyKeys("foo");
+        assertThat(updated).containsOnlyKeys("foo", "bar");
+    }
+
+    @Test
+    void unchangedMapIsSameInstance() {
+        var value = Integer.valueOf(1000);
+        var map = PersistentHashMap.<String, Integer>empty().plus("foo", value);
+
+        assertThat(map.plus("foo", value)).isSameAs(map);
+        assertThat(map.minus("bar")).isSameAs(map);
+    }
+
+    @Test
+    void hashCollisions() {
+        var map = PersistentHashMap.<CollidingKey, String>empty();
+        for (int i = 0; i < 10; i++) {
+            map = map.plus(new CollidingKey(42, "key-" + i), "value-" + i);
+        }
+
+        assertThat(map).hasSize(10);
+        assertThat(map.get(new CollidingKey(42, "key-5"))).isEqualTo("value-5");
+
+        for (int i = 0; i < 9; i++) {
+            map = map.minus(new CollidingKey(42, "key-" + i));
+        }
+
+        assertThat(map).containsOnlyKeys(new CollidingKey(42, "key-9"));
+    }
+
+    @Test
+    void behavesLikeHashMap() {
+        var random = new Random(1234);
+        var expected = new HashMap<CollidingKey, Integer>();
+        var map = PersistentHashMap.<CollidingKey, Integer>empty();
+        var keys = new ArrayList<CollidingKey>();
+
+        for (int i = 0; i < 10_000; i++) {
+            if (keys.isEmpty() || random.nextInt(3) != 0) {
+                // A small hash range creates both partial and full hash collisions
+                var key = new CollidingKey(random.nextInt(2048) * (random.nextBoolean() ? 1 : -1 << 16),
+                        "key-" + random.nextInt(4));
+                var value = random.nextInt();
+                keys.add(key);
+                expected.put(key, value);
+                map = map.plus(key, value);
+            } else {
+                var key = keys.get(random.nextInt(keys.size()));
+                expected.remove(key);
+                map = map.minus(key);
+            }
+            assertThat(map.size()).isEqualTo(expected.size());
+        }
+
+        assertThat(map).isEqualTo(expected);
+        assertThat(map.keySet()).containsExactlyInAnyOrderElementsOf(expected.keySet());
+
+        for (var key : expected.keySet()) {
+            map = map.minus(key);
+        }
+        assertThat(map).isEmpty();
+    }
+
+    @Test
+    void persistentHashSet() {
+        var set = PersistentHashSet.<String>empty().plus("foo").plus("bar");
+
+        assertThat(set).isEqualTo(Set.of("foo", "bar"));
+        assertThat(set.minus("foo")).containsExactly("bar");
+        assertThat(set.minus("baz")).isSameAs(set);
+        assertThat(set).containsExactlyInAnyOrder("foo", "bar");
+    }
+}
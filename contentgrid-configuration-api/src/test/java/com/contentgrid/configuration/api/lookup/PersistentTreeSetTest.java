@@ -0,0 +1,61 @@
+package com.contentgrid.configuration.api.lookup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+class PersistentTreeSetTest {
+
+    @Test
+    void simpleOperations() {
+        var empty = PersistentTreeSet.<String>empty(Comparator.naturalOrder());
+        var set = empty.plus("foo").plus("bar").plus("baz");
+
+        assertThat(empty).isEmpty();
+        assertThat(set).containsExactly("bar", "baz", "foo");
+        assertThat(set.plus("foo")).isSameAs(set);
+        assertThat(set.minus("qux")).isSameAs(set);
+        assertThat(set.minus("baz")).containsExactly("bar", "foo");
+        assertThat(set).containsExactly("bar", "baz", "foo");
+    }
+
+    @Test
+    void range() {
+        var set = PersistentTreeSet.<Integer>empty(Comparator.naturalOrder());
+        for (int i = 0; i < 100; i += 10) {
+            set = set.plus(i);
+        }
+
+        assertThat(set.range(15, 45)).toIterable().containsExactly(20, 30, 40);
+        assertThat(set.range(20, 40)).toIterable().containsExactly(20, 30);
+        assertThat(set.range(null, 15)).toIterable().containsExactly(0, 10);
+        assertThat(set.range(75, null)).toIterable().containsExactly(80, 90);
+        assertThat(set.range(41, 49)).toIterable().isEmpty();
+    }
+
+    @Test
+    void behavesLikeTreeSet() {
+        var random = new Random(1234);
+        var expected = new TreeSet<Integer>();
+        var set = PersistentTreeSet.<Integer>empty(Comparator.naturalOrder());
+
+        for (int i = 0; i < 10_000; i++) {
+            var value = random.nextInt(1000);
+            if (random.nextBoolean()) {
+                expected.add(value);
+                set = set.plus(value);
+            } else {
+                expected.remove(value);
+                set = set.minus(value);
+            }
+            assertThat(set.size()).isEqualTo(expected.size());
+        }
+
+        assertThat(new ArrayList<>(set)).isEqualTo(new ArrayList<>(expected));
+        assertThat(set.range(250, 500)).toIterable().containsExactlyElementsOf(expected.subSet(250, 500));
+    }
+}
@@ -0,0 +1,272 @@
+package com.contentgrid.configuration.api.observable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.contentgrid.configuration.api.observable.Observable.UpdateEvent;
+import com.contentgrid.configuration.api.observable.Observable.UpdateType;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+class PublisherTest {
+
+    @Test
+    void unboundedBuffer() {
+        var publisher = new Publisher<String>();
+
+        StepVerifier.create(publisher.observe(), 0)
+                .then(() -> {
+                    publisher.emit(UpdateType.ADD, "a");
+                    publisher.emit(UpdateType.ADD, "b");
+                    publisher.emit(UpdateType.ADD, "c");
+                })
+                .thenRequest(3)
+                .expectNext(
+                        new UpdateEvent<>(UpdateType.ADD, "a"),
+                        new UpdateEvent<>(UpdateType.ADD, "b"),
+                        new UpdateEvent<>(UpdateType.ADD, "c")
+                )
+                .then(publisher::close)
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+
+        assertThat(publisher.getBufferHighWaterMark()).isEqualTo(3);
+    }
+
+    @Test
+    void observe_buffersNothingBeforeSubscribing() {
+        var publisher = new Publisher<String>(() -> List.of("a"));
+
+        var flux = publisher.observe();
+        publisher.emit(UpdateType.ADD, "b");
+        publisher.emit(UpdateType.ADD, "c");
+
+        assertThat(publisher.getBufferHighWaterMark()).isZero();
+
+        // The snapshot of existing data is only taken when subscribing
+        StepVerifier.create(flux)
+                .expectNext(new UpdateEvent<>(UpdateType.ADD, "a"))
+                .then(() -> publisher.emit(UpdateType.ADD, "d"))
+                .expectNext(new UpdateEvent<>(UpdateType.ADD, "d"))
+                .then(publisher::close)
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void observe_noGapBetweenExistingDataAndNewEvents() {
+        var publisherRef = new AtomicReference<Publisher<String>>();
+        var publisher = new Publisher<String>(() -> {
+            var existingData = List.of("a");
+            // A change that happens right after taking the snapshot of existing data
+            publisherRef.get().emit(UpdateType.ADD, "b");
+            return existingData;
+        });
+        publisherRef.set(publisher);
+
+        StepVerifier.create(publisher.observe())
+                .expectNext(
+                        new UpdateEvent<>(UpdateType.ADD, "a"),
+                        new UpdateEvent<>(UpdateType.ADD, "b")
+                )
+                .then(publisher::close)
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void observe_sequenceNumbers() {
+        var publisher = new Publisher<String>(() -> List.of("a"));
+        publisher.emit(UpdateType.ADD, "b");
+
+        StepVerifier.create(publisher.observe())
+                // Existing data has the sequence number of the last event before it was retrieved
+                .expectNextMatches(event -> event.getValue().equals("a") && event.getSequence() == 1)
+                .then(() -> publisher.emit(UpdateType.ADD, "c"))
+                .expectNextMatches(event -> event.getValue().equals("c") && event.getSequence() == 2)
+                .then(publisher::close)
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void observeFrom() {
+        var publisher = new Publisher<String>(() -> List.of("a", "b", "c"), BackpressureStrategy.unbounded(), 2);
+        publisher.emit(UpdateType.ADD, "a");
+        publisher.emit(UpdateType.ADD, "b");
+        publisher.emit(UpdateType.ADD, "c");
+
+        StepVerifier.create(publisher.observeFrom(0))
+                .expectError(MissedEventsException.class)
+                .verify(Duration.ofSeconds(1));
+
+        StepVerifier.create(publisher.observeFrom(4))
+                .expectError(MissedEventsException.class)
+                .verify(Duration.ofSeconds(1));
+
+        StepVerifier.create(publisher.observeFrom(1))
+                .expectNextMatches(event -> event.getValue().equals("b") && event.getSequence() == 2)
+                .expectNextMatches(event -> event.getValue().equals("c") && event.getSequence() == 3)
+                .then(() -> publisher.emit(UpdateType.REMOVE, "a"))
+                .expectNextMatches(event -> event.getType() == UpdateType.REMOVE && event.getSequence() == 4)
+                .then(publisher::close)
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void observeBatches() {
+        var publisher = new Publisher<String>(() -> List.of("a", "b", "c"));
+
+        StepVerifier.withVirtualTime(() -> publisher.observeBatches(2, Duration.ofSeconds(1)))
+                .expectSubscription()
+                .expectNext(List.of(
+                        new UpdateEvent<>(UpdateType.ADD, "a"),
+                        new UpdateEvent<>(UpdateType.ADD, "b")
+                ))
+                // An incomplete batch is delivered after the delay
+                .expectNoEvent(Duration.ofMillis(500))
+                .thenAwait(Duration.ofMillis(500))
+                .expectNext(List.of(new UpdateEvent<>(UpdateType.ADD, "c")))
+                .then(() -> {
+                    publisher.emit(UpdateType.UPDATE, "a");
+                    publisher.emit(UpdateType.REMOVE, "b");
+                })
+                .expectNext(List.of(
+                        new UpdateEvent<>(UpdateType.UPDATE, "a"),
+                        new UpdateEvent<>(UpdateType.REMOVE, "b")
+                ))
+                .then(publisher::close)
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void observeBatches_waitsForDemand() {
+        var publisher = new Publisher<String>();
+
+        StepVerifier.create(publisher.observeBatches(2, Duration.ofMinutes(1)), 1)
+                .then(() -> {
+                    for (var value : List.of("a", "b", "c", "d", "e")) {
+                        publisher.emit(UpdateType.ADD, value);
+                    }
+                })
+                .expectNext(List.of(
+                        new UpdateEvent<>(UpdateType.ADD, "a"),
+                        new UpdateEvent<>(UpdateType.ADD, "b")
+                ))
+                // The other events are buffered until the next batch is requested, instead of failing the subscriber
+                .thenRequest(1)
+                .expectNext(List.of(
+                        new UpdateEvent<>(UpdateType.ADD, "c"),
+                        new UpdateEvent<>(UpdateType.ADD, "d")
+                ))
+                .thenCancel()
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void boundedBuffer_terminatesSlowSubscriber() {
+        var publisher = new Publisher<String>();
+
+        StepVerifier.create(publisher.observe(BackpressureStrategy.bounded(2)), 0)
+                .then(() -> {
+                    publisher.emit(UpdateType.ADD, "a");
+                    publisher.emit(UpdateType.ADD, "b");
+                    // Does not fail for the publisher, only for the subscriber
+                    publisher.emit(UpdateType.ADD, "c");
+                })
+                .expectErrorMatches(Exceptions::isOverflow)
+                .verify(Duration.ofSeconds(1));
+
+        assertThat(publisher.getBufferHighWaterMark()).isEqualTo(2);
+    }
+
+    @Test
+    void boundedBuffer_perPublisher() {
+        var publisher = new Publisher<String>(List::of, BackpressureStrategy.bounded(1));
+
+        StepVerifier.create(publisher.observe(), 0)
+                .then(() -> {
+                    publisher.emit(UpdateType.ADD, "a");
+                    publisher.emit(UpdateType.ADD, "b");
+                })
+                .expectErrorMatches(Exceptions::isOverflow)
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void dropOldest() {
+        var publisher = new Publisher<String>();
+
+        StepVerifier.create(publisher.observe(BackpressureStrategy.dropOldest(2)), 0)
+                .then(() -> {
+                    publisher.emit(UpdateType.ADD, "a");
+                    publisher.emit(UpdateType.ADD, "b");
+                    publisher.emit(UpdateType.ADD, "c");
+                })
+                .thenRequest(10)
+                .expectNext(
+                        new UpdateEvent<>(UpdateType.ADD, "b"),
+                        new UpdateEvent<>(UpdateType.ADD, "c")
+                )
+                .then(publisher::close)
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+
+        assertThat(publisher.getBufferHighWaterMark()).isEqualTo(2);
+    }
+
+    @Test
+    void latestPerKey() {
+        var publisher = new Publisher<Map.Entry<String, Integer>>();
+
+        StepVerifier.create(publisher.observe(BackpressureStrategy.latestPerKey(Map.Entry::getKey)), 0)
+                .then(() -> {
+                    publisher.emit(UpdateType.ADD, Map.entry("a", 1));
+                    publisher.emit(UpdateType.UPDATE, Map.entry("a", 2));
+                    publisher.emit(UpdateType.ADD, Map.entry("b", 1));
+                    publisher.emit(UpdateType.REMOVE, Map.entry("b", 1));
+                    publisher.emit(UpdateType.ADD, Map.entry("c", 1));
+                })
+                .thenRequest(1)
+                .expectNext(new UpdateEvent<>(UpdateType.ADD, Map.entry("a", 2)))
+                .then(() -> {
+                    publisher.emit(UpdateType.REMOVE, Map.entry("a", 2));
+                    publisher.emit(UpdateType.ADD, Map.entry("a", 3));
+                })
+                .thenRequest(10)
+                .expectNext(
+                        new UpdateEvent<>(UpdateType.ADD, Map.entry("c", 1)),
+                        // The subscriber has seen a=2, so the re-added key is an update
+                        new UpdateEvent<>(UpdateType.UPDATE, Map.entry("a", 3))
+                )
+                .then(publisher::close)
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void settle_errorDeliversHeldBackEvents() {
+        var source = Sinks.many().unicast().<UpdateEvent<String>>onBackpressureBuffer();
+        var settled = SettleWindow.settle(
+                source.asFlux(), Function.identity(), Duration.ofMinutes(1), VirtualTimeScheduler.create());
+
+        StepVerifier.create(settled)
+                .then(() -> {
+                    source.tryEmitNext(new UpdateEvent<>(UpdateType.ADD, "a"));
+                    source.tryEmitError(new IllegalStateException("upstream failed"));
+                })
+                // Like on completion, without waiting for the end of the window
+                .expectNext(new UpdateEvent<>(UpdateType.ADD, "a"))
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofSeconds(1));
+    }
+}
@@ -5,26 +5,52 @@ import com.contentgrid.configuration.api.fragments.ConfigurationFragment;
 import com.contentgrid.configuration.api.fragments.DynamicallyConfigurable;
 import com.contentgrid.configuration.api.observable.Observable;
 import com.contentgrid.configuration.applications.ApplicationConfiguration;
+import com.contentgrid.configuration.applications.ApplicationConfigurationLookup;
 import com.contentgrid.configuration.applications.ApplicationId;
+import java.time.Duration;
 import java.util.List;
+import java.util.stream.Collector;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Role;
 
 @AutoConfiguration
+@EnableConfigurationProperties(ConfigurationCompositionProperties.class)
 @ConditionalOnClass({ComposedConfigurationRepository.class, ApplicationConfiguration.class})
 public class ApplicationConfigurationAutoConfiguration {
 
     private static final String BEAN_PREFIX = "com.contentgrid.configuration.spring.autoconfigure.ApplicationConfigurationAutoConfiguration#";
+    private static final int MAX_BATCH_SIZE = 1024;
+    private static final Duration MAX_BATCH_DELAY = Duration.ofMillis(100);
 
+    /**
+     * @param composer composes the configurations of all fragments of an application, defaults to
+     * {@link ApplicationConfiguration#merging()}. Declare a bean of this type to compose them differently.
+     */
     @Bean(name = BEAN_PREFIX + "configurationRepository")
     @ConditionalOnMissingBean
-    ComposedConfigurationRepository<String, ApplicationId, ApplicationConfiguration> configurationRepository() {
-        return new ComposedConfigurationRepository<>(ApplicationConfiguration::merge);
+    ComposedConfigurationRepository<String, ApplicationId, ApplicationConfiguration> configurationRepository(
+            ConfigurationCompositionProperties compositionProperties,
+            ObjectProvider<Collector<ApplicationConfiguration, ?, ApplicationConfiguration>> composer
+    ) {
+        return new ComposedConfigurationRepository<>(
+                composer.getIfAvailable(ApplicationConfiguration::merging),
+                compositionProperties.getSettleWindow()
+        );
+    }
+
+    @Bean(name = BEAN_PREFIX + "configurationLookup")
+    @ConditionalOnMissingBean
+    ApplicationConfigurationLookup configurationLookup(
+            ComposedConfigurationRepository<String, ApplicationId, ApplicationConfiguration> configurationRepository
+    ) {
+        return new ApplicationConfigurationLookup(configurationRepository);
     }
 
     @Bean(name = BEAN_PREFIX + "subscribeRunner")
@@ -34,7 +60,9 @@ public class ApplicationConfigurationAutoConfiguration {
             DynamicallyConfigurable<String, ApplicationId, ApplicationConfiguration> configurationRepository
     ) {
         return (args) -> {
-            observables.forEach(configurationRepository::subscribe);
+            // Applied in batches, so the initial listing and relists of the informers do not change every
+            // application once for every resource
+            observables.forEach(observable -> configurationRepository.subscribe(observable, MAX_BATCH_SIZE, MAX_BATCH_DELAY));
         };
     }
 }
@@ -0,0 +1,11 @@
+package com.contentgrid.configuration.spring.autoconfigure;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("contentgrid.configuration.composition")
+@Data
+public class ConfigurationCompositionProperties {
+    private Duration settleWindow = Duration.ZERO;
+}
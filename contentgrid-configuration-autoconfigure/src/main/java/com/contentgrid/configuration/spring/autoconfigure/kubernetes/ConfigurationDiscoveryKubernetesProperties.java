@@ -1,5 +1,7 @@
 package com.contentgrid.configuration.spring.autoconfigure.kubernetes;
 
+import java.util.ArrayList;
+import java.util.List;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
@@ -7,4 +9,26 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @Data
 public class ConfigurationDiscoveryKubernetesProperties {
     private String namespace;
+
+    private Pruning pruning = new Pruning();
+
+    /**
+     * Strips the ConfigMaps and Secrets in the informer caches down to what is needed to create configuration fragments.
+     * Only applies to the default fragment factories, not to a custom {@code ConfigurationFragmentFactory} bean.
+     * Disabled by default, because it changes what the informer caches keep.
+     */
+    @Data
+    public static class Pruning {
+        private boolean enabled = false;
+
+        /**
+         * Data keys with one of these prefixes are kept, all others are removed
+         */
+        private List<String> dataKeyPrefixes = new ArrayList<>(List.of("contentgrid."));
+
+        /**
+         * Labels that are kept, in addition to the labels that are needed for the composition key
+         */
+        private List<String> labels = new ArrayList<>();
+    }
 }
@@ -7,12 +7,18 @@ import com.contentgrid.configuration.applications.ApplicationConfiguration;
 import com.contentgrid.configuration.applications.ApplicationId;
 import com.contentgrid.configuration.kubernetes.fabric8.ConfigMapConfigurationFragmentFactory;
 import com.contentgrid.configuration.kubernetes.fabric8.KubernetesInformerObservableFactory;
+import com.contentgrid.configuration.kubernetes.fabric8.MemoizingConfigurationFragmentFactory;
+import com.contentgrid.configuration.kubernetes.fabric8.ResourcePruning;
 import com.contentgrid.configuration.kubernetes.fabric8.SecretConfigurationFragmentFactory;
+import com.contentgrid.configuration.spring.autoconfigure.kubernetes.ConfigurationDiscoveryKubernetesProperties.Pruning;
 import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.LabelSelector;
 import io.fabric8.kubernetes.api.model.LabelSelectorBuilder;
 import io.fabric8.kubernetes.api.model.Secret;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Predicate;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
@@ -41,35 +47,68 @@ public class KubernetesConfigurationMappingApplicationConfiguration {
     }
 
     private ConfigurationFragmentFactory<ConfigMap, String, ApplicationId, ApplicationConfiguration> configMapFragmentFactory() {
-        return new ConfigMapConfigurationFragmentFactory<>(
+        return new MemoizingConfigurationFragmentFactory<>(new ConfigMapConfigurationFragmentFactory<>(
                 KubernetesConfigurationMappingApplicationConfiguration::createApplicationIdFromMetadata,
                 ApplicationConfiguration::fromMap
-        );
+        ));
     }
 
     @Bean(name = BEAN_PREFIX + "configMapObservable")
     Observable<ConfigurationFragment<String, ApplicationId, ApplicationConfiguration>> configMapObservable(
             KubernetesResourceFilter resourceFilter,
             KubernetesInformerObservableFactory observableFactory,
-            ObjectProvider<ConfigurationFragmentFactory<ConfigMap, String, ApplicationId, ApplicationConfiguration>> fragmentFactory
+            ObjectProvider<ConfigurationFragmentFactory<ConfigMap, String, ApplicationId, ApplicationConfiguration>> fragmentFactory,
+            ConfigurationDiscoveryKubernetesProperties configurationDiscoveryKubernetesProperties
     ) {
-        return observableFactory.inform(kc -> resourceFilter.filter(kc.configMaps()), fragmentFactory.getIfAvailable(this::configMapFragmentFactory));
+        var pruning = configurationDiscoveryKubernetesProperties.getPruning();
+        var customFragmentFactory = fragmentFactory.getIfAvailable();
+        if (customFragmentFactory != null) {
+            // A custom fragment factory may need more of the resource than is kept by pruning
+            return observableFactory.inform(kc -> resourceFilter.filter(kc.configMaps()), customFragmentFactory);
+        }
+        return observableFactory.inform(
+                kc -> resourceFilter.filter(kc.configMaps()),
+                configMapFragmentFactory(),
+                pruning.isEnabled() ? ResourcePruning.configMaps(dataKeys(pruning), labels(pruning)) : null
+        );
     }
 
     private ConfigurationFragmentFactory<Secret, String, ApplicationId, ApplicationConfiguration> secretFragmentFactory() {
-        return new SecretConfigurationFragmentFactory<>(
+        return new MemoizingConfigurationFragmentFactory<>(new SecretConfigurationFragmentFactory<>(
                 KubernetesConfigurationMappingApplicationConfiguration::createApplicationIdFromMetadata,
                 ApplicationConfiguration::fromMap
-        );
+        ));
     }
 
     @Bean(name = BEAN_PREFIX + "secretObservable")
     Observable<ConfigurationFragment<String, ApplicationId, ApplicationConfiguration>> secretObservable(
             KubernetesResourceFilter resourceFilter,
             KubernetesInformerObservableFactory observableFactory,
-            ObjectProvider<ConfigurationFragmentFactory<Secret, String, ApplicationId, ApplicationConfiguration>> fragmentFactory
+            ObjectProvider<ConfigurationFragmentFactory<Secret, String, ApplicationId, ApplicationConfiguration>> fragmentFactory,
+            ConfigurationDiscoveryKubernetesProperties configurationDiscoveryKubernetesProperties
     ) {
-        return observableFactory.inform(kc -> resourceFilter.filter(kc.secrets()), fragmentFactory.getIfAvailable(this::secretFragmentFactory));
+        var pruning = configurationDiscoveryKubernetesProperties.getPruning();
+        var customFragmentFactory = fragmentFactory.getIfAvailable();
+        if (customFragmentFactory != null) {
+            // A custom fragment factory may need more of the resource than is kept by pruning
+            return observableFactory.inform(kc -> resourceFilter.filter(kc.secrets()), customFragmentFactory);
+        }
+        return observableFactory.inform(
+                kc -> resourceFilter.filter(kc.secrets()),
+                secretFragmentFactory(),
+                pruning.isEnabled() ? ResourcePruning.secrets(dataKeys(pruning), labels(pruning)) : null
+        );
+    }
+
+    private static Predicate<String> dataKeys(Pruning pruning) {
+        var prefixes = List.copyOf(pruning.getDataKeyPrefixes());
+        return key -> prefixes.stream().anyMatch(key::startsWith);
+    }
+
+    private static Predicate<String> labels(Pruning pruning) {
+        var labels = new HashSet<>(pruning.getLabels());
+        labels.add(LABEL_CONTENTGRID_APPID);
+        return labels::contains;
     }
 
     private static ApplicationId createApplicationIdFromMetadata(HasMetadata cm) {
@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import com.contentgrid.configuration.api.ConfigurationRepository;
 import com.contentgrid.configuration.applications.ApplicationConfiguration;
+import com.contentgrid.configuration.applications.ApplicationConfigurationLookup;
 import com.contentgrid.configuration.applications.ApplicationId;
 import com.contentgrid.configuration.spring.autoconfigure.ApplicationConfigurationAutoConfiguration;
 import com.contentgrid.configuration.spring.autoconfigure.ClassLoaderFilters;
@@ -66,6 +67,20 @@ class SpringPropertiesAutoConfigurationTest {
                 });
     }
 
+    @Test
+    void resolvesHostFromProperties() {
+        contextRunner
+                .withPropertyValues(PROPERTIES)
+                .run(context -> {
+                    assertThat(context).getBean(ApplicationConfigurationLookup.class)
+                            .satisfies(lookup -> {
+                                assertThat(lookup.resolveHost("app1.example")).hasValue(ApplicationId.from("app1"));
+                                assertThat(lookup.resolveHost("Extra-Domain.example:443")).hasValue(ApplicationId.from("app1"));
+                                assertThat(lookup.resolveHost("app2.example")).isEmpty();
+                            });
+                });
+    }
+
     @Test
     void doesNotProcessProperties_missingPropertiesSpring() {
         contextRunner
@@ -0,0 +1,70 @@
+package com.contentgrid.configuration.applications;
+
+import com.contentgrid.configuration.applications.ApplicationConfiguration.Keys;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses a typical application configuration, as for every informer event. Run with the gc profiler (the default for
+ * the jmh task) to see the allocation per parse in {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApplicationConfigurationBenchmark {
+
+    private final Map<String, String> configMap = Map.of(
+            Keys.CLIENT_ID, "contentgrid-app-0d2c5e8a",
+            Keys.CLIENT_SECRET, "4b1e9f0c-8d7a-4f3e-9c2b-6a5d8e7f1c0b",
+            Keys.ISSUER_URI, "https://auth.example.com/realms/contentgrid",
+            Keys.ADDITIONAL_ISSUER_URIS, "https://auth.example.com/realms/internal",
+            Keys.ROUTING_DOMAINS, "0d2c5e8a.contentgrid.cloud, api.0d2c5e8a.contentgrid.cloud;app.example.com",
+            Keys.CORS_ORIGINS, "https://console.contentgrid.cloud,https://app.example.com"
+    );
+
+    @Benchmark
+    public ApplicationConfiguration fromMap() {
+        return ApplicationConfiguration.fromMap(configMap);
+    }
+
+    /**
+     * The regular expression based parsing that fromMap used before, as a baseline
+     */
+    @Benchmark
+    public ApplicationConfiguration fromMapWithRegex() {
+        return new ApplicationConfiguration(
+                configMap.get(Keys.CLIENT_ID),
+                configMap.get(Keys.CLIENT_SECRET),
+                configMap.get(Keys.ISSUER_URI),
+                splitWithRegex(configMap.get(Keys.ADDITIONAL_ISSUER_URIS)),
+                splitWithRegex(configMap.get(Keys.ROUTING_DOMAINS)),
+                splitWithRegex(configMap.get(Keys.CORS_ORIGINS))
+        );
+    }
+
+    private static Set<String> splitWithRegex(String config) {
+        if (config == null || config.isBlank()) {
+            return Set.of();
+        }
+        return Arrays.stream(config.split("[,;]+"))
+                .map(String::trim)
+                .filter(Predicate.not(String::isBlank))
+                .collect(Collectors.toUnmodifiableSet());
+    }
+}
@@ -2,11 +2,12 @@ package com.contentgrid.configuration.applications;
 
 import com.contentgrid.configuration.api.ComposedConfiguration;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Predicate;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import lombok.Builder;
 import lombok.NonNull;
@@ -45,18 +46,22 @@ public class ApplicationConfiguration {
 
         public static final String ROUTING_DOMAINS = "contentgrid.routing.domains";
         public static final String CORS_ORIGINS = "contentgrid.cors.origins";
-
-        static final String DELIMITER_REGEX = "[,;]+";
     }
 
+    /**
+     * Issuer URIs and CORS origins are typically shared by many applications, so they are interned to keep only one copy
+     * of every value. Client ids and secrets are not, they are specific to a single application.
+     */
+    private static final StringInterner SHARED_VALUES = new StringInterner(1024);
+
     public static ApplicationConfiguration fromMap(Map<String, String> configMap) {
         return new ApplicationConfiguration(
                 configMap.get(Keys.CLIENT_ID),
                 configMap.get(Keys.CLIENT_SECRET),
-                configMap.get(Keys.ISSUER_URI),
-                split(configMap.get(Keys.ADDITIONAL_ISSUER_URIS)),
-                split(configMap.get(Keys.ROUTING_DOMAINS)),
-                split(configMap.get(Keys.CORS_ORIGINS))
+                SHARED_VALUES.intern(configMap.get(Keys.ISSUER_URI)),
+                split(configMap.get(Keys.ADDITIONAL_ISSUER_URIS), SHARED_VALUES),
+                split(configMap.get(Keys.ROUTING_DOMAINS), null),
+                split(configMap.get(Keys.CORS_ORIGINS), SHARED_VALUES)
         );
     }
 
@@ -71,6 +76,52 @@ public class ApplicationConfiguration {
         );
     }
 
+    /**
+     * Merges any number of configurations at once, with the same result as merging them one by one, in order, with
+     * {@link #merge(ApplicationConfiguration)}. Every set is built only once, with room for all of its elements.
+     */
+    public static ApplicationConfiguration mergeAll(@NonNull Collection<ApplicationConfiguration> configurations) {
+        if (configurations.isEmpty()) {
+            throw new IllegalArgumentException("No configurations to merge");
+        }
+        if (configurations.size() == 1) {
+            return configurations.iterator().next();
+        }
+
+        String clientId = null;
+        String clientSecret = null;
+        String issuerUri = null;
+        int additionalIssuerUrisSize = 0;
+        int routingDomainsSize = 0;
+        int corsOriginsSize = 0;
+        for (var configuration : configurations) {
+            clientId = merge(clientId, configuration.clientId);
+            clientSecret = merge(clientSecret, configuration.clientSecret);
+            issuerUri = merge(issuerUri, configuration.issuerUri);
+            additionalIssuerUrisSize += configuration.additionalIssuerUris.size();
+            routingDomainsSize += configuration.routingDomains.size();
+            corsOriginsSize += configuration.corsOrigins.size();
+        }
+
+        var additionalIssuerUris = newSet(additionalIssuerUrisSize);
+        var routingDomains = newSet(routingDomainsSize);
+        var corsOrigins = newSet(corsOriginsSize);
+        for (var configuration : configurations) {
+            additionalIssuerUris.addAll(configuration.additionalIssuerUris);
+            routingDomains.addAll(configuration.routingDomains);
+            corsOrigins.addAll(configuration.corsOrigins);
+        }
+
+        return new ApplicationConfiguration(clientId, clientSecret, issuerUri, additionalIssuerUris, routingDomains, corsOrigins);
+    }
+
+    /**
+     * @return a collector that merges all configurations with {@link #mergeAll(Collection)}
+     */
+    public static Collector<ApplicationConfiguration, ?, ApplicationConfiguration> merging() {
+        return Collectors.collectingAndThen(Collectors.toList(), ApplicationConfiguration::mergeAll);
+    }
+
     public ComposedConfiguration<ApplicationId, ApplicationConfiguration> forApplication(ApplicationId applicationId) {
         return new ComposedConfiguration<>() {
             @Override
@@ -93,20 +144,95 @@ public class ApplicationConfiguration {
     }
 
     private static Set<String> merge(Set<String> a , Set<String> b) {
-        var merged = new HashSet<String>(a.size()+b.size());
+        var merged = newSet(a.size() + b.size());
         merged.addAll(a);
         merged.addAll(b);
         return merged;
     }
 
-    private static Set<String> split(String config) {
-        if(config == null || config.isBlank()) {
+    /**
+     * @return a set that holds {@code expectedSize} elements without resizing
+     */
+    private static Set<String> newSet(int expectedSize) {
+        return new HashSet<>((int) Math.ceil(expectedSize / 0.75));
+    }
+
+    /**
+     * Splits a list of values that are separated by {@code ,} or {@code ;}. Values are trimmed, and blank values are
+     * left out.
+     * <p>
+     * Every fragment goes through this for every informer event, so it scans the list in a single pass, without a
+     * regular expression or intermediate collections.
+     *
+     * @param interner interns the values, or {@code null} when they should not be interned
+     */
+    static Set<String> split(String config, StringInterner interner) {
+        if (config == null) {
             return Set.of();
         }
-        return Arrays.stream(config.split(Keys.DELIMITER_REGEX))
-                .map(String::trim)
-                .filter(Predicate.not(String::isBlank))
-                .collect(Collectors.toUnmodifiableSet());
+        String[] values = null;
+        int count = 0;
+        int start = 0;
+        int length = config.length();
+        for (int i = 0; i <= length; i++) {
+            if (i < length && !isDelimiter(config.charAt(i))) {
+                continue;
+            }
+            int from = start;
+            int to = i;
+            start = i + 1;
+            while (from < to && config.charAt(from) <= ' ') {
+                from++;
+            }
+            while (to > from && config.charAt(to - 1) <= ' ') {
+                to--;
+            }
+            if (isBlank(config, from, to)) {
+                continue;
+            }
+            var value = config.substring(from, to);
+            if (interner != null) {
+                value = interner.intern(value);
+            }
+            if (values == null) {
+                values = new String[4];
+            } else if (contains(values, count, value)) {
+                continue;
+            } else if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = value;
+        }
+        if (count == 0) {
+            return Set.of();
+        }
+        if (count == 1) {
+            return Set.of(values[0]);
+        }
+        return Set.of(count == values.length ? values : Arrays.copyOf(values, count));
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c == ',' || c == ';';
+    }
+
+    private static boolean isBlank(String config, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(config.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(String[] values, int count, String value) {
+        // Lists are short, a linear scan is cheaper than hashing
+        for (int i = 0; i < count; i++) {
+            if (values[i].equals(value)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public static class ApplicationConfigurationBuilder {
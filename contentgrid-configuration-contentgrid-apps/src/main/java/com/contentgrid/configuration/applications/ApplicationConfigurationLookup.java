@@ -0,0 +1,340 @@
+package com.contentgrid.configuration.applications;
+
+import com.contentgrid.configuration.api.ComposedConfiguration;
+import com.contentgrid.configuration.api.lookup.ConcurrentLookup;
+import com.contentgrid.configuration.api.lookup.ConcurrentLookup.Snapshot;
+import com.contentgrid.configuration.api.lookup.Lookup;
+import com.contentgrid.configuration.api.lookup.SuffixLookup;
+import com.contentgrid.configuration.api.observable.Observable;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.NonNull;
+import lombok.Value;
+import reactor.core.Disposable;
+
+/**
+ * Live indexes over the composed {@link ApplicationConfiguration}s of all applications.
+ * <p>
+ * The indexes are updated incrementally from an observable of composed configurations, typically a
+ * {@link com.contentgrid.configuration.api.fragments.ComposedConfigurationRepository}, so lookups never have to iterate
+ * over all applications.
+ */
+public class ApplicationConfigurationLookup implements AutoCloseable {
+
+    private static final int DEFAULT_MAX_CACHED_HOSTS = 10_000;
+
+    private final ConcurrentLookup<ApplicationId, CompiledConfiguration> applications;
+    private final SuffixLookup<CompiledConfiguration> routingDomains;
+    private final Lookup<String, CompiledConfiguration> issuers;
+    private final Lookup<String, CompiledConfiguration> corsOrigins;
+    private final Lookup<Boolean, CompiledConfiguration> corsOriginPatterns;
+    private final Disposable subscription;
+
+    private final int maxCachedHosts;
+    /**
+     * Resolutions of host names that are not in their normalized form or that do not match a routing domain exactly.
+     * Entries are only valid for the version of the applications that they were resolved against.
+     */
+    private final Map<String, CachedResolution> hostCache = new ConcurrentHashMap<>();
+    /**
+     * Host names that did not resolve to an application, kept apart so unknown hosts can not evict the known ones
+     */
+    private final Map<String, CachedResolution> unknownHostCache = new ConcurrentHashMap<>();
+    /**
+     * The applications that allow an origin, as it was received, for the version of the applications that they were
+     * found in
+     */
+    private final Map<String, CachedCorsOrigin> corsOriginCache = new ConcurrentHashMap<>();
+
+    public ApplicationConfigurationLookup(
+            Observable<ComposedConfiguration<ApplicationId, ApplicationConfiguration>> configurations
+    ) {
+        this(configurations, DEFAULT_MAX_CACHED_HOSTS);
+    }
+
+    public ApplicationConfigurationLookup(
+            @NonNull Observable<ComposedConfiguration<ApplicationId, ApplicationConfiguration>> configurations,
+            int maxCachedHosts
+    ) {
+        this.maxCachedHosts = maxCachedHosts;
+        this.applications = new ConcurrentLookup<>(CompiledConfiguration::getCompositionKey);
+        this.routingDomains = applications.createSuffixMultiLookup(composed -> configuration(composed)
+                .flatMap(configuration -> configuration.getRoutingDomains().stream())
+                .map(ApplicationConfigurationLookup::normalizeHost));
+        this.issuers = applications.createMultiLookup(composed -> configuration(composed)
+                .flatMap(configuration -> Stream.concat(
+                        Stream.ofNullable(configuration.getIssuerUri()),
+                        configuration.getAdditionalIssuerUris().stream()
+                )));
+        this.corsOrigins = applications.createMultiLookup(compiled -> compiled.getCorsOriginMatcher()
+                .getExactOrigins().stream());
+        // Only the applications with patterns are indexed, all under the same key
+        this.corsOriginPatterns = applications.createMultiLookup(compiled -> compiled.getCorsOriginMatcher().hasPatterns()
+                ? Stream.of(Boolean.TRUE)
+                : Stream.empty());
+        // Compile every configuration once, when it changes
+        this.subscription = configurations.observe()
+                .map(event -> event.mapValue(CompiledConfiguration::compile))
+                .subscribe(event -> {
+                    switch (event.getType()) {
+                        case ADD, UPDATE -> applications.add(event.getValue());
+                        case REMOVE -> applications.remove(event.getValue().getCompositionKey());
+                    }
+                });
+    }
+
+    private static Stream<ApplicationConfiguration> configuration(CompiledConfiguration compiled) {
+        return compiled.getConfiguration().stream();
+    }
+
+    /**
+     * Resolves the application that serves a host name, for example from an HTTP {@code Host} header.
+     * <p>
+     * The host name is matched case-insensitively against the routing domains of all applications; a port and a
+     * trailing dot are ignored. When no routing domain matches exactly, the routing domain of the nearest parent domain
+     * is used.
+     *
+     * @param host the host name to resolve
+     * @return the application that serves the host, or an empty optional when no application or multiple applications
+     * claim the host
+     */
+    public Optional<ApplicationId> resolveHost(@NonNull String host) {
+        // Read the version before looking up, so a concurrent change always invalidates the cached result
+        var version = applications.snapshot().getVersion();
+
+        if (isNormalizedHost(host)) {
+            // Fast path: the host can be looked up as-is, without allocating anything
+            var exact = routingDomains.get(host);
+            if (!exact.isEmpty()) {
+                return singleApplication(exact);
+            }
+        }
+
+        var cached = hostCache.get(host);
+        if (cached == null) {
+            cached = unknownHostCache.get(host);
+        }
+        if (cached != null && cached.version == version) {
+            return cached.applicationId;
+        }
+
+        // Only normalized once per host name and version, repeated lookups are served from the cache
+        var applicationId = routingDomains.longestSuffix(normalizeHost(host))
+                .flatMap(entry -> singleApplication(entry.getValue()));
+        var resolution = new CachedResolution(version, applicationId);
+        if (applicationId.isPresent()) {
+            unknownHostCache.remove(host);
+            cache(hostCache, host, resolution);
+        } else {
+            hostCache.remove(host);
+            cache(unknownHostCache, host, resolution);
+        }
+        return applicationId;
+    }
+
+    private <T> void cache(Map<String, T> cache, String key, T value) {
+        if (cache.size() >= maxCachedHosts && !cache.containsKey(key)) {
+            // Evict an arbitrary entry: the cache only has to keep the hosts that are requested a lot from being
+            // resolved again, and those are put back right away
+            var keys = cache.keySet().iterator();
+            if (keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        cache.put(key, value);
+    }
+
+    /**
+     * Finds the composed configurations of all applications that trust an issuer, either as their issuer URI or as one of
+     * their additional issuer URIs.
+     * <p>
+     * Issuer URIs are compared exactly, like the {@code iss} claim of a JWT.
+     *
+     * @param issuerUri the issuer URI to look up
+     * @return the configurations of the applications that trust the issuer
+     */
+    public Collection<? extends ComposedConfiguration<ApplicationId, ApplicationConfiguration>> findByIssuer(
+            @NonNull String issuerUri
+    ) {
+        return issuers.get(issuerUri);
+    }
+
+    /**
+     * Finds the ids of all applications that trust an issuer
+     *
+     * @param issuerUri the issuer URI to look up
+     * @return the ids of the applications that trust the issuer
+     * @see #findByIssuer(String)
+     */
+    public Set<ApplicationId> findApplicationsByIssuer(@NonNull String issuerUri) {
+        return findByIssuer(issuerUri).stream()
+                .map(ComposedConfiguration::getCompositionKey)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Checks whether an application allows cross-origin requests from an origin, using the CORS origin matcher that was
+     * compiled when the configuration of the application last changed.
+     *
+     * @param applicationId the application that is the target of the request
+     * @param origin the {@code Origin} header of the request
+     * @return whether the origin is allowed; {@code false} for unknown applications
+     */
+    public boolean isCorsOriginAllowed(@NonNull ApplicationId applicationId, @NonNull String origin) {
+        var compiled = applications.get(applicationId);
+        return compiled != null && compiled.getCorsOriginMatcher().matches(origin);
+    }
+
+    /**
+     * @param applicationId the application to find the CORS origin matcher for
+     * @return the compiled CORS origins of the application, or an empty optional for unknown applications
+     */
+    public Optional<CorsOriginMatcher> findCorsOriginMatcher(@NonNull ApplicationId applicationId) {
+        return Optional.ofNullable(applications.get(applicationId))
+                .map(CompiledConfiguration::getCorsOriginMatcher);
+    }
+
+    /**
+     * Finds all applications that allow cross-origin requests from an origin.
+     * <p>
+     * Origins without wildcard are found with a single hash lookup; only applications that have CORS origins with
+     * wildcards are matched one by one. The result is cached until the applications change, so repeated lookups of the
+     * same origin do not allocate.
+     *
+     * @param origin the {@code Origin} header of a request
+     * @return the ids of the applications that allow the origin
+     */
+    public Set<ApplicationId> findApplicationsByCorsOrigin(@NonNull String origin) {
+        var snapshot = applications.snapshot();
+        var cached = corsOriginCache.get(origin);
+        if (cached != null && cached.version == snapshot.getVersion()) {
+            return cached.applicationIds;
+        }
+
+        var applicationIds = resolveCorsOrigin(snapshot, origin);
+        cache(corsOriginCache, origin, new CachedCorsOrigin(snapshot.getVersion(), applicationIds));
+        return applicationIds;
+    }
+
+    private Set<ApplicationId> resolveCorsOrigin(Snapshot<ApplicationId, CompiledConfiguration> snapshot, String origin) {
+        // Browsers send the origin in lower case, so it only has to be copied in exceptional cases
+        var exact = snapshot.get(corsOrigins, CorsOriginMatcher.hasUpperCase(origin) ? origin.toLowerCase(Locale.ROOT) : origin);
+        Set<ApplicationId> result = null;
+        for (var compiled : snapshot.get(corsOriginPatterns, Boolean.TRUE)) {
+            if (compiled.getCorsOriginMatcher().matches(origin)) {
+                if (result == null) {
+                    result = new HashSet<>(applicationIds(exact));
+                }
+                result.add(compiled.getCompositionKey());
+            }
+        }
+        return result == null ? applicationIds(exact) : Set.copyOf(result);
+    }
+
+    private static Set<ApplicationId> applicationIds(Collection<CompiledConfiguration> configurations) {
+        if (configurations.isEmpty()) {
+            return Set.of();
+        }
+        return configurations.stream()
+                .map(CompiledConfiguration::getCompositionKey)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private static Optional<ApplicationId> singleApplication(Collection<CompiledConfiguration> configurations) {
+        if (configurations.size() != 1) {
+            // Ambiguous routing domains can not be resolved to an application
+            return Optional.empty();
+        }
+        return Optional.of(configurations.iterator().next().getCompositionKey());
+    }
+
+    /**
+     * @return whether the host is already lower case, without port and without trailing dot
+     */
+    private static boolean isNormalizedHost(String host) {
+        for (int i = 0; i < host.length(); i++) {
+            var c = host.charAt(i);
+            if ((c >= 'A' && c <= 'Z') || c == ':' || c > 0x7f) {
+                return false;
+            }
+        }
+        return host.isEmpty() || host.charAt(host.length() - 1) != '.';
+    }
+
+    static String normalizeHost(String host) {
+        if (isNormalizedHost(host)) {
+            return host;
+        }
+        var end = host.length();
+        if (host.startsWith("[")) {
+            // IPv6 literal, the port comes after the closing bracket
+            var bracket = host.indexOf(']');
+            if (bracket >= 0) {
+                end = bracket + 1;
+            }
+        } else {
+            var colon = host.indexOf(':');
+            if (colon >= 0) {
+                end = colon;
+            }
+        }
+        if (end > 0 && host.charAt(end - 1) == '.') {
+            end--;
+        }
+        return host.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void close() throws Exception {
+        subscription.dispose();
+        applications.close();
+    }
+
+    /**
+     * A composed configuration, with the derived data that is expensive to compute
+     */
+    @Value
+    private static class CompiledConfiguration implements ComposedConfiguration<ApplicationId, ApplicationConfiguration> {
+        @NonNull
+        ApplicationId compositionKey;
+
+        ApplicationConfiguration configuration;
+
+        @NonNull
+        CorsOriginMatcher corsOriginMatcher;
+
+        static CompiledConfiguration compile(ComposedConfiguration<ApplicationId, ApplicationConfiguration> composed) {
+            var configuration = composed.getConfiguration().orElse(null);
+            return new CompiledConfiguration(
+                    composed.getCompositionKey(),
+                    configuration,
+                    CorsOriginMatcher.compile(configuration == null ? Set.of() : configuration.getCorsOrigins())
+            );
+        }
+
+        @Override
+        public Optional<ApplicationConfiguration> getConfiguration() {
+            return Optional.ofNullable(configuration);
+        }
+    }
+
+    @Value
+    private static class CachedResolution {
+        long version;
+        Optional<ApplicationId> applicationId;
+    }
+
+    @Value
+    private static class CachedCorsOrigin {
+        long version;
+        Set<ApplicationId> applicationIds;
+    }
+}
@@ -0,0 +1,141 @@
+package com.contentgrid.configuration.applications;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Matches request origins against the CORS origins of an application, see {@link ApplicationConfiguration#getCorsOrigins()}.
+ * <p>
+ * CORS origins are compiled once: origins without wildcard are matched with a hash lookup, origins that contain
+ * {@code *} are split into their literal parts, so they can be matched without allocating. A {@code *} matches any
+ * sequence of characters, so {@code https://*.example.com} matches {@code https://app.example.com}.
+ * <p>
+ * Origins are compared case-insensitively. Only request origins that are not in lower case, unlike the way browsers
+ * serialize the {@code Origin} header, need an extra allocation.
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class CorsOriginMatcher {
+
+    private static final CorsOriginMatcher EMPTY = new CorsOriginMatcher(Set.of(), List.of());
+
+    private final Set<String> exactOrigins;
+    private final List<OriginPattern> patterns;
+
+    public static CorsOriginMatcher compile(@NonNull Collection<String> corsOrigins) {
+        if (corsOrigins.isEmpty()) {
+            return EMPTY;
+        }
+        var exactOrigins = new HashSet<String>();
+        var patterns = new ArrayList<OriginPattern>();
+        for (var corsOrigin : corsOrigins) {
+            var origin = corsOrigin.toLowerCase(Locale.ROOT);
+            if (origin.indexOf('*') < 0) {
+                exactOrigins.add(origin);
+            } else {
+                patterns.add(new OriginPattern(origin));
+            }
+        }
+        return new CorsOriginMatcher(Set.copyOf(exactOrigins), List.copyOf(patterns));
+    }
+
+    /**
+     * @return whether the origin is allowed by any of the CORS origins
+     */
+    public boolean matches(@NonNull String origin) {
+        if (exactOrigins.contains(origin) || (hasUpperCase(origin) && exactOrigins.contains(origin.toLowerCase(Locale.ROOT)))) {
+            return true;
+        }
+        for (int i = 0; i < patterns.size(); i++) {
+            if (patterns.get(i).matches(origin)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean hasUpperCase(String origin) {
+        for (int i = 0; i < origin.length(); i++) {
+            if (Character.isUpperCase(origin.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the CORS origins without wildcard, in lower case
+     */
+    public Set<String> getExactOrigins() {
+        return exactOrigins;
+    }
+
+    /**
+     * @return whether any of the CORS origins contains a wildcard
+     */
+    public boolean hasPatterns() {
+        return !patterns.isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return exactOrigins.isEmpty() && patterns.isEmpty();
+    }
+
+    /**
+     * An origin with {@code *} wildcards, compiled to the literal parts in between the wildcards
+     */
+    private static final class OriginPattern {
+        private final String prefix;
+        private final String[] infixes;
+        private final String suffix;
+        private final int minimumLength;
+
+        private OriginPattern(String pattern) {
+            var parts = pattern.split("\\*", -1);
+            this.prefix = parts[0];
+            this.suffix = parts[parts.length - 1];
+            this.infixes = new String[parts.length - 2];
+            System.arraycopy(parts, 1, infixes, 0, infixes.length);
+
+            var length = prefix.length() + suffix.length();
+            for (var infix : infixes) {
+                length += infix.length();
+            }
+            this.minimumLength = length;
+        }
+
+        boolean matches(String origin) {
+            if (origin.length() < minimumLength
+                    || !origin.regionMatches(true, 0, prefix, 0, prefix.length())
+                    || !origin.regionMatches(true, origin.length() - suffix.length(), suffix, 0, suffix.length())) {
+                return false;
+            }
+            // Match every literal part as early as possible, in between the prefix and the suffix
+            var position = prefix.length();
+            var end = origin.length() - suffix.length();
+            for (var infix : infixes) {
+                position = indexOfIgnoreCase(origin, infix, position, end);
+                if (position < 0) {
+                    return false;
+                }
+                position += infix.length();
+            }
+            return true;
+        }
+
+        private static int indexOfIgnoreCase(String origin, String infix, int from, int end) {
+            for (int i = from; i + infix.length() <= end; i++) {
+                if (origin.regionMatches(true, i, infix, 0, infix.length())) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
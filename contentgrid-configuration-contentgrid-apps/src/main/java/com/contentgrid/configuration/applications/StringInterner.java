@@ -0,0 +1,36 @@
+package com.contentgrid.configuration.applications;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a single instance of equal strings, like {@link String#intern()}, but with a bounded number of entries that is
+ * separate from the JVM-wide string table.
+ * <p>
+ * Once the interner is full, new values are returned as-is instead of evicting older ones, so the values that are
+ * common from the start keep being shared.
+ */
+final class StringInterner {
+
+    private final int maxSize;
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+
+    StringInterner(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        var existing = values.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (values.size() >= maxSize) {
+            return value;
+        }
+        existing = values.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
+}
@@ -0,0 +1,151 @@
+package com.contentgrid.configuration.applications;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.contentgrid.configuration.api.ComposedConfiguration;
+import com.contentgrid.configuration.api.observable.Observable.UpdateType;
+import com.contentgrid.configuration.api.observable.Publisher;
+import org.junit.jupiter.api.Test;
+
+class ApplicationConfigurationLookupTest {
+
+    private static final ApplicationId APP_1 = ApplicationId.from("app1");
+    private static final ApplicationId APP_2 = ApplicationId.from("app2");
+
+    @Test
+    void resolveHost() throws Exception {
+        var publisher = new Publisher<ComposedConfiguration<ApplicationId, ApplicationConfiguration>>();
+        var lookup = new ApplicationConfigurationLookup(publisher);
+
+        publisher.emit(UpdateType.ADD, ApplicationConfiguration.builder()
+                .routingDomain("app1.example.com")
+                .routingDomain("App1.Example.org")
+                .buildForApplication(APP_1));
+        publisher.emit(UpdateType.ADD, ApplicationConfiguration.builder()
+                .routingDomain("app2.example.com")
+                .buildForApplication(APP_2));
+
+        assertThat(lookup.resolveHost("app1.example.com")).hasValue(APP_1);
+        assertThat(lookup.resolveHost("app1.example.org")).hasValue(APP_1);
+        assertThat(lookup.resolveHost("APP1.example.COM")).hasValue(APP_1);
+        assertThat(lookup.resolveHost("app1.example.com:8080")).hasValue(APP_1);
+        assertThat(lookup.resolveHost("app1.example.com.")).hasValue(APP_1);
+        assertThat(lookup.resolveHost("api.app2.example.com")).hasValue(APP_2);
+        assertThat(lookup.resolveHost("example.com")).isEmpty();
+        assertThat(lookup.resolveHost("unknown.example.net")).isEmpty();
+
+        // Cached results are invalidated when the configuration changes
+        publisher.emit(UpdateType.ADD, ApplicationConfiguration.builder()
+                .routingDomain("unknown.example.net")
+                .buildForApplication(ApplicationId.from("app3")));
+        assertThat(lookup.resolveHost("unknown.example.net")).hasValue(ApplicationId.from("app3"));
+
+        publisher.emit(UpdateType.REMOVE, ApplicationConfiguration.builder()
+                .buildForApplication(APP_1));
+        assertThat(lookup.resolveHost("APP1.example.COM")).isEmpty();
+
+        lookup.close();
+    }
+
+    @Test
+    void resolveHost_fullCache() throws Exception {
+        var publisher = new Publisher<ComposedConfiguration<ApplicationId, ApplicationConfiguration>>();
+        var lookup = new ApplicationConfigurationLookup(publisher, 2);
+
+        publisher.emit(UpdateType.ADD, ApplicationConfiguration.builder()
+                .routingDomain("app1.example.com")
+                .buildForApplication(APP_1));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(lookup.resolveHost("Host" + i + ".App1.example.com")).hasValue(APP_1);
+            assertThat(lookup.resolveHost("Host" + i + ".unknown.example.com")).isEmpty();
+        }
+        assertThat(lookup.resolveHost("Host0.App1.example.com")).hasValue(APP_1);
+        assertThat(lookup.resolveHost("Host0.unknown.example.com")).isEmpty();
+
+        lookup.close();
+    }
+
+    @Test
+    void resolveHost_ambiguous() throws Exception {
+        var publisher = new Publisher<ComposedConfiguration<ApplicationId, ApplicationConfiguration>>();
+        var lookup = new ApplicationConfigurationLookup(publisher);
+
+        publisher.emit(UpdateType.ADD, ApplicationConfiguration.builder()
+                .routingDomain("shared.example.com")
+                .buildForApplication(APP_1));
+        publisher.emit(UpdateType.ADD, ApplicationConfiguration.builder()
+                .routingDomain("shared.example.com")
+                .buildForApplication(APP_2));
+
+        assertThat(lookup.resolveHost("shared.example.com")).isEmpty();
+
+        lookup.close();
+    }
+
+    @Test
+    void findByIssuer() throws Exception {
+        var publisher = new Publisher<ComposedConfiguration<ApplicationId, ApplicationConfiguration>>();
+        var lookup = new ApplicationConfigurationLookup(publisher);
+
+        publisher.emit(UpdateType.ADD, ApplicationConfiguration.builder()
+                .issuerUri("https://auth.example.com/realms/app1")
+                .additionalIssuerUri("https://auth.example.com/realms/shared")
+                .buildForApplication(APP_1));
+        publisher.emit(UpdateType.ADD, ApplicationConfiguration.builder()
+                .issuerUri("https://auth.example.com/realms/app2")
+                .additionalIssuerUri("https://auth.example.com/realms/shared")
+                .buildForApplication(APP_2));
+
+        assertThat(lookup.findApplicationsByIssuer("https://auth.example.com/realms/app1")).containsExactly(APP_1);
+        assertThat(lookup.findApplicationsByIssuer("https://auth.example.com/realms/shared"))
+                .containsExactlyInAnyOrder(APP_1, APP_2);
+        assertThat(lookup.findByIssuer("https://auth.example.com/realms/app2"))
+                .singleElement()
+                .satisfies(composed -> assertThat(composed.getConfiguration())
+                        .hasValueSatisfying(config -> assertThat(config.getIssuerUri())
+                                .isEqualTo("https://auth.example.com/realms/app2")));
+        assertThat(lookup.findByIssuer("https://auth.example.com/realms/other")).isEmpty();
+
+        publisher.emit(UpdateType.UPDATE, ApplicationConfiguration.builder()
+                .issuerUri("https://auth.example.com/realms/app2")
+                .buildForApplication(APP_2));
+        assertThat(lookup.findApplicationsByIssuer("https://auth.example.com/realms/shared")).containsExactly(APP_1);
+
+        lookup.close();
+    }
+
+    @Test
+    void corsOrigins() throws Exception {
+        var publisher = new Publisher<ComposedConfiguration<ApplicationId, ApplicationConfiguration>>();
+        var lookup = new ApplicationConfigurationLookup(publisher);
+
+        publisher.emit(UpdateType.ADD, ApplicationConfiguration.builder()
+                .corsOrigin("https://app1.example.com")
+                .corsOrigin("https://shared.example.com")
+                .buildForApplication(APP_1));
+        publisher.emit(UpdateType.ADD, ApplicationConfiguration.builder()
+                .corsOrigin("https://*.example.com")
+                .buildForApplication(APP_2));
+
+        assertThat(lookup.isCorsOriginAllowed(APP_1, "https://app1.example.com")).isTrue();
+        assertThat(lookup.isCorsOriginAllowed(APP_1, "https://app2.example.com")).isFalse();
+        assertThat(lookup.isCorsOriginAllowed(APP_2, "https://app2.example.com")).isTrue();
+        assertThat(lookup.isCorsOriginAllowed(ApplicationId.from("unknown"), "https://app1.example.com")).isFalse();
+
+        assertThat(lookup.findApplicationsByCorsOrigin("https://shared.example.com")).containsExactlyInAnyOrder(APP_1, APP_2);
+        assertThat(lookup.findApplicationsByCorsOrigin("https://other.example.com")).containsExactly(APP_2);
+        assertThat(lookup.findApplicationsByCorsOrigin("https://example.org")).isEmpty();
+        assertThat(lookup.findApplicationsByCorsOrigin("HTTPS://App1.Example.com")).containsExactlyInAnyOrder(APP_1, APP_2);
+        // Unchanged applications return the cached result
+        assertThat(lookup.findApplicationsByCorsOrigin("https://shared.example.com"))
+                .isSameAs(lookup.findApplicationsByCorsOrigin("https://shared.example.com"));
+
+        publisher.emit(UpdateType.UPDATE, ApplicationConfiguration.builder()
+                .buildForApplication(APP_2));
+        assertThat(lookup.isCorsOriginAllowed(APP_2, "https://app2.example.com")).isFalse();
+        assertThat(lookup.findApplicationsByCorsOrigin("https://shared.example.com")).containsExactly(APP_1);
+
+        lookup.close();
+    }
+}
@@ -0,0 +1,74 @@
+package com.contentgrid.configuration.applications;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.contentgrid.configuration.applications.ApplicationConfiguration.Keys;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class ApplicationConfigurationTest {
+
+    private static final ApplicationConfiguration FIRST = ApplicationConfiguration.builder()
+            .routingDomain("app.example.com")
+            .corsOrigin("https://app.example.com")
+            .build();
+
+    private static final ApplicationConfiguration SECOND = ApplicationConfiguration.builder()
+            .clientId("client")
+            .issuerUri("https://auth.example.com/realms/first")
+            .routingDomain("app.example.org")
+            .build();
+
+    private static final ApplicationConfiguration THIRD = ApplicationConfiguration.builder()
+            .clientId("other-client")
+            .clientSecret("secret")
+            .issuerUri("https://auth.example.com/realms/third")
+            .additionalIssuerUri("https://auth.example.com/realms/extra")
+            .routingDomain("app.example.com")
+            .build();
+
+    @Test
+    void fromMap() {
+        var configuration = ApplicationConfiguration.fromMap(Map.of(
+                Keys.CLIENT_ID, "client",
+                Keys.ISSUER_URI, "https://auth.example.com/realms/app",
+                Keys.ROUTING_DOMAINS, " app.example.com;;app.example.org , ,app.example.com,",
+                Keys.CORS_ORIGINS, "https://app.example.com",
+                Keys.ADDITIONAL_ISSUER_URIS, " \t"
+        ));
+
+        assertThat(configuration.getClientId()).isEqualTo("client");
+        assertThat(configuration.getClientSecret()).isNull();
+        assertThat(configuration.getIssuerUri()).isEqualTo("https://auth.example.com/realms/app");
+        assertThat(configuration.getRoutingDomains()).containsExactlyInAnyOrder("app.example.com", "app.example.org");
+        assertThat(configuration.getCorsOrigins()).containsExactly("https://app.example.com");
+        assertThat(configuration.getAdditionalIssuerUris()).isEmpty();
+    }
+
+    @Test
+    void fromMap_internsSharedValues() {
+        var first = ApplicationConfiguration.fromMap(Map.of(Keys.ISSUER_URI, new String("https://auth.example.com")));
+        var second = ApplicationConfiguration.fromMap(Map.of(Keys.ISSUER_URI, new String("https://auth.example.com")));
+
+        assertThat(second.getIssuerUri()).isSameAs(first.getIssuerUri());
+    }
+
+    @Test
+    void mergeAll() {
+        var merged = ApplicationConfiguration.mergeAll(List.of(FIRST, SECOND, THIRD));
+
+        assertThat(merged).isEqualTo(FIRST.merge(SECOND).merge(THIRD));
+        assertThat(merged.getClientId()).isEqualTo("client");
+        assertThat(merged.getClientSecret()).isEqualTo("secret");
+        assertThat(merged.getRoutingDomains()).containsExactlyInAnyOrder("app.example.com", "app.example.org");
+    }
+
+    @Test
+    void merging() {
+        assertThat(Stream.of(FIRST, SECOND, THIRD).collect(ApplicationConfiguration.merging()))
+                .isEqualTo(FIRST.merge(SECOND).merge(THIRD));
+        assertThat(Stream.of(SECOND).collect(ApplicationConfiguration.merging())).isSameAs(SECOND);
+    }
+}
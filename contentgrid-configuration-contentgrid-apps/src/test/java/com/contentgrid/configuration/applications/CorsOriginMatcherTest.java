@@ -0,0 +1,44 @@
+package com.contentgrid.configuration.applications;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class CorsOriginMatcherTest {
+
+    @Test
+    void exactOrigins() {
+        var matcher = CorsOriginMatcher.compile(Set.of("https://app.example.com", "HTTP://localhost:8080"));
+
+        assertThat(matcher.matches("https://app.example.com")).isTrue();
+        assertThat(matcher.matches("http://localhost:8080")).isTrue();
+        assertThat(matcher.matches("https://APP.example.com")).isTrue();
+        assertThat(matcher.matches("https://app.example.com:443")).isFalse();
+        assertThat(matcher.matches("http://app.example.com")).isFalse();
+        assertThat(matcher.hasPatterns()).isFalse();
+    }
+
+    @Test
+    void wildcardOrigins() {
+        var matcher = CorsOriginMatcher.compile(Set.of("https://*.example.com", "http://localhost:*", "https://*-*.test"));
+
+        assertThat(matcher.matches("https://app.example.com")).isTrue();
+        assertThat(matcher.matches("https://a.b.example.com")).isTrue();
+        assertThat(matcher.matches("https://example.com")).isFalse();
+        assertThat(matcher.matches("https://app.example.org")).isFalse();
+        assertThat(matcher.matches("http://localhost:3000")).isTrue();
+        assertThat(matcher.matches("http://localhost")).isFalse();
+        assertThat(matcher.matches("https://foo-bar.test")).isTrue();
+        assertThat(matcher.matches("https://foobar.test")).isFalse();
+        assertThat(matcher.hasPatterns()).isTrue();
+    }
+
+    @Test
+    void noOrigins() {
+        var matcher = CorsOriginMatcher.compile(Set.of());
+
+        assertThat(matcher.isEmpty()).isTrue();
+        assertThat(matcher.matches("https://app.example.com")).isFalse();
+    }
+}
@@ -0,0 +1,87 @@
+package com.contentgrid.configuration.kubernetes.fabric8;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A read-only view of base64 encoded data, like the data of a Secret, with the values decoded as UTF-8.
+ * <p>
+ * A value is only decoded when it is accessed for the first time, so values that are never read, like large
+ * certificate bundles, are never decoded.
+ */
+final class Base64DecodingMap extends AbstractMap<String, String> {
+
+    private final Map<String, String> encoded;
+    private final Map<Object, String> decoded = new ConcurrentHashMap<>();
+
+    Base64DecodingMap(Map<String, String> encoded) {
+        this.encoded = encoded;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (key == null) {
+            // The decoded values can not hold a null key, and resource data never has one
+            return null;
+        }
+        var value = decoded.get(key);
+        if (value != null) {
+            return value;
+        }
+        var encodedValue = encoded.get(key);
+        if (encodedValue == null) {
+            return null;
+        }
+        value = new String(Base64.getDecoder().decode(encodedValue), StandardCharsets.UTF_8);
+        var existing = decoded.putIfAbsent(key, value);
+        return existing == null ? value : existing;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && encoded.containsKey(key);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return encoded.keySet();
+    }
+
+    @Override
+    public int size() {
+        return encoded.size();
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                var keys = encoded.keySet().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return keys.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        var key = keys.next();
+                        return new SimpleImmutableEntry<>(key, get(key));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return encoded.size();
+            }
+        };
+    }
+}
@@ -3,6 +3,7 @@ package com.contentgrid.configuration.kubernetes.fabric8;
 import com.contentgrid.configuration.api.fragments.ConfigurationFragment;
 import com.contentgrid.configuration.api.fragments.ConfigurationFragmentFactory;
 import com.contentgrid.configuration.api.observable.Observable;
+import com.contentgrid.configuration.api.observable.Observable.UpdateType;
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.dsl.Informable;
@@ -10,6 +11,7 @@ import java.time.Duration;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import lombok.RequiredArgsConstructor;
 
 @RequiredArgsConstructor
@@ -23,13 +25,32 @@ public class KubernetesInformerObservableFactory implements AutoCloseable {
     public <T extends HasMetadata, F, K, C> Observable<ConfigurationFragment<F, K, C>> inform(
             Function<KubernetesClient, Informable<T>> resourceSelector,
             ConfigurationFragmentFactory<T, F, K, C> configurationFragmentFactory
+    ) {
+        return inform(resourceSelector, configurationFragmentFactory, null);
+    }
+
+    /**
+     * @param storeTransform transforms every resource before it is stored in the informer cache, for example to strip
+     * the fields that the fragment factory does not use, see {@link ResourcePruning}. The resources of new events are
+     * transformed the same way, so the fragment factory always gets transformed resources.
+     */
+    public <T extends HasMetadata, F, K, C> Observable<ConfigurationFragment<F, K, C>> inform(
+            Function<KubernetesClient, Informable<T>> resourceSelector,
+            ConfigurationFragmentFactory<T, F, K, C> configurationFragmentFactory,
+            UnaryOperator<T> storeTransform
     ) {
         var informer = resourceSelector.apply(kubernetesClient)
                 .runnableInformer(resyncInterval.toMillis());
 
+        if (storeTransform != null) {
+            informer.itemStore(new TransformingItemStore<>(storeTransform));
+        }
+
         closeables.add(informer);
 
-        var observableEventHandler = new ObservableResourceEventHandler<T>(informer);
+        var observableEventHandler = storeTransform == null
+                ? new ObservableResourceEventHandler<T>(informer)
+                : new ObservableResourceEventHandler<T>(informer, storeTransform);
 
         closeables.add(observableEventHandler);
 
@@ -39,7 +60,9 @@ public class KubernetesInformerObservableFactory implements AutoCloseable {
 
         return () -> {
             return observableEventHandler.observe()
-                    .map(event -> event.mapValue(configurationFragmentFactory::createFragment));
+                    .map(event -> event.mapValue(event.getType() == UpdateType.REMOVE
+                            ? configurationFragmentFactory::removeFragment
+                            : configurationFragmentFactory::createFragment));
         };
     }
 
@@ -0,0 +1,83 @@
+package com.contentgrid.configuration.kubernetes.fabric8;
+
+import com.contentgrid.configuration.api.fragments.ConfigurationFragment;
+import com.contentgrid.configuration.api.fragments.ConfigurationFragmentFactory;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Reuses the fragment that was created for a Kubernetes resource, as long as the resource is not changed.
+ * <p>
+ * A resource is unchanged as long as it has the same {@code metadata.uid} and {@code metadata.resourceVersion}, so
+ * informer resyncs and replays of the informer store for new subscribers do not create the fragment again. Only the
+ * latest version of every resource is kept, until the resource is {@link #removeFragment(HasMetadata) removed}.
+ * <p>
+ * At most {@code maxSize} resources are kept. When it is full, the fragments of other resources are not kept, instead of
+ * evicting kept ones: a replay goes through all resources in the same order every time, so evicting would only make
+ * room for resources that are not needed again before they are evicted themselves.
+ * <p>
+ * The fragment of a resource must only depend on the resource itself.
+ */
+public class MemoizingConfigurationFragmentFactory<T extends HasMetadata, F, K, C> implements
+        ConfigurationFragmentFactory<T, F, K, C> {
+
+    public static final int DEFAULT_MAX_SIZE = 65_536;
+
+    private final ConfigurationFragmentFactory<T, F, K, C> delegate;
+    private final int maxSize;
+
+    // Keyed on metadata.uid
+    private final Map<String, CachedFragment<F, K, C>> cache = new ConcurrentHashMap<>();
+
+    public MemoizingConfigurationFragmentFactory(ConfigurationFragmentFactory<T, F, K, C> delegate) {
+        this(delegate, DEFAULT_MAX_SIZE);
+    }
+
+    public MemoizingConfigurationFragmentFactory(@NonNull ConfigurationFragmentFactory<T, F, K, C> delegate, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive, but was %d".formatted(maxSize));
+        }
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public ConfigurationFragment<F, K, C> createFragment(T fragment) {
+        var uid = fragment.getMetadata().getUid();
+        var resourceVersion = fragment.getMetadata().getResourceVersion();
+        if (uid == null || resourceVersion == null) {
+            // Not stored in the cluster, so there is no way to tell whether it changed
+            return delegate.createFragment(fragment);
+        }
+
+        var cached = cache.get(uid);
+        if (cached != null && cached.getResourceVersion().equals(resourceVersion)) {
+            return cached.getFragment();
+        }
+
+        var created = delegate.createFragment(fragment);
+        if (cached != null || cache.size() < maxSize) {
+            cache.put(uid, new CachedFragment<>(resourceVersion, created));
+        }
+        return created;
+    }
+
+    @Override
+    public ConfigurationFragment<F, K, C> removeFragment(T fragment) {
+        var uid = fragment.getMetadata().getUid();
+        var cached = uid == null ? null : cache.remove(uid);
+        if (cached != null && cached.getResourceVersion().equals(fragment.getMetadata().getResourceVersion())) {
+            return cached.getFragment();
+        }
+        return delegate.removeFragment(fragment);
+    }
+
+    @Value
+    private static class CachedFragment<F, K, C> {
+        String resourceVersion;
+        ConfigurationFragment<F, K, C> fragment;
+    }
+}
@@ -1,11 +1,15 @@
 package com.contentgrid.configuration.kubernetes.fabric8;
 
+import com.contentgrid.configuration.api.observable.BackpressureStrategy;
 import com.contentgrid.configuration.api.observable.Observable;
 import com.contentgrid.configuration.api.observable.Publisher;
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
 import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
+import io.fabric8.kubernetes.client.informers.cache.Cache;
+import io.fabric8.kubernetes.client.informers.cache.Store;
 import java.util.Objects;
+import java.util.function.UnaryOperator;
 import lombok.experimental.Delegate;
 import reactor.core.publisher.Flux;
 
@@ -14,25 +18,53 @@ class ObservableResourceEventHandler<T extends HasMetadata> implements ResourceE
     @Delegate(types = {AutoCloseable.class})
     private final Publisher<T> publisher;
 
+    private final Store<T> store;
+
+    // The transform of the informer store, or null when the store holds the resources as they are received
+    private final UnaryOperator<T> transform;
+
     ObservableResourceEventHandler(SharedIndexInformer<T> informer) {
-        publisher = new Publisher<>(informer.getStore()::list);
+        this(informer, null);
+    }
+
+    ObservableResourceEventHandler(SharedIndexInformer<T> informer, UnaryOperator<T> transform) {
+        store = informer.getStore();
+        publisher = new Publisher<>(store::list);
+        this.transform = transform;
+    }
+
+    /**
+     * The informer passes the received resource to handlers, not the transformed resource that it stored. The stored
+     * resource is reused, so the transform does not run a second time.
+     */
+    private T stored(T obj) {
+        if (transform == null) {
+            return obj;
+        }
+        var stored = store.getByKey(Cache.metaNamespaceKeyFunc(obj));
+        if (stored != null && Objects.equals(stored.getMetadata().getResourceVersion(), obj.getMetadata().getResourceVersion())) {
+            return stored;
+        }
+        // The store has moved on to a newer version of the resource already
+        return transform.apply(obj);
     }
 
     @Override
     public void onAdd(T obj) {
-        publisher.emit(UpdateType.ADD, obj);
+        publisher.emit(UpdateType.ADD, stored(obj));
 
     }
 
     @Override
     public void onUpdate(T oldObj, T newObj) {
         if(!Objects.equals(oldObj.getMetadata().getResourceVersion(), newObj.getMetadata().getResourceVersion())) {
-            publisher.emit(UpdateType.UPDATE, newObj);
+            publisher.emit(UpdateType.UPDATE, stored(newObj));
         }
     }
 
     @Override
     public void onDelete(T obj, boolean deletedFinalStateUnknown) {
+        // Deleted resources are passed to handlers as they were stored, so they are already transformed
         publisher.emit(UpdateType.REMOVE, obj);
     }
 
@@ -40,4 +72,9 @@ class ObservableResourceEventHandler<T extends HasMetadata> implements ResourceE
     public Flux<UpdateEvent<T>> observe() {
         return publisher.observe();
     }
+
+    @Override
+    public Flux<UpdateEvent<T>> observe(BackpressureStrategy<T> backpressureStrategy) {
+        return publisher.observe(backpressureStrategy);
+    }
 }
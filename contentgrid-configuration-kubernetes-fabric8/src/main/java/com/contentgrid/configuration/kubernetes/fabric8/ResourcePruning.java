@@ -0,0 +1,66 @@
+package com.contentgrid.configuration.kubernetes.fabric8;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
+import io.fabric8.kubernetes.api.model.ObjectMetaBuilder;
+import io.fabric8.kubernetes.api.model.Secret;
+import io.fabric8.kubernetes.api.model.SecretBuilder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Transforms that strip everything from a resource that is not needed to create a configuration fragment, to use with
+ * {@link KubernetesInformerObservableFactory#inform(java.util.function.Function, com.contentgrid.configuration.api.fragments.ConfigurationFragmentFactory, UnaryOperator)}.
+ * <p>
+ * Of the metadata, only the name, namespace, uid, resource version and the selected labels are kept. Annotations and
+ * managed fields are removed, as are all data keys that are not selected.
+ */
+@UtilityClass
+public class ResourcePruning {
+
+    public static UnaryOperator<ConfigMap> configMaps(@NonNull Predicate<String> dataKeys, @NonNull Predicate<String> labels) {
+        return configMap -> new ConfigMapBuilder()
+                .withMetadata(pruneMetadata(configMap.getMetadata(), labels))
+                .withImmutable(configMap.getImmutable())
+                .withData(filter(configMap.getData(), dataKeys))
+                .withBinaryData(filter(configMap.getBinaryData(), dataKeys))
+                .build();
+    }
+
+    public static UnaryOperator<Secret> secrets(@NonNull Predicate<String> dataKeys, @NonNull Predicate<String> labels) {
+        return secret -> new SecretBuilder()
+                .withMetadata(pruneMetadata(secret.getMetadata(), labels))
+                .withImmutable(secret.getImmutable())
+                .withType(secret.getType())
+                .withData(filter(secret.getData(), dataKeys))
+                .build();
+    }
+
+    private static ObjectMeta pruneMetadata(ObjectMeta metadata, Predicate<String> labels) {
+        return new ObjectMetaBuilder()
+                .withName(metadata.getName())
+                .withNamespace(metadata.getNamespace())
+                .withUid(metadata.getUid())
+                .withResourceVersion(metadata.getResourceVersion())
+                .withLabels(filter(metadata.getLabels(), labels))
+                .build();
+    }
+
+    private static Map<String, String> filter(Map<String, String> map, Predicate<String> keys) {
+        if (map == null || map.isEmpty()) {
+            return map;
+        }
+        var filtered = new HashMap<String, String>();
+        map.forEach((key, value) -> {
+            if (keys.test(key)) {
+                filtered.put(key, value);
+            }
+        });
+        return filtered;
+    }
+}
@@ -3,8 +3,6 @@ package com.contentgrid.configuration.kubernetes.fabric8;
 import com.contentgrid.configuration.api.fragments.ConfigurationFragment;
 import com.contentgrid.configuration.api.fragments.ConfigurationFragmentFactory;
 import io.fabric8.kubernetes.api.model.Secret;
-import java.util.Base64;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
 import lombok.NonNull;
@@ -26,13 +24,14 @@ public class SecretConfigurationFragmentFactory<K, C> implements ConfigurationFr
         );
     }
 
+    /**
+     * @return a read-only view that only decodes the values that are read, as UTF-8
+     */
     private Map<String, String> base64decode(Map<String, String> data) {
-        var decoder = Base64.getDecoder();
-        var copy = new HashMap<String, String>(data.size());
-
-        data.forEach((key, value) -> copy.put(key, new String(decoder.decode(value))));
-
-        return copy;
+        if (data == null) {
+            return Map.of();
+        }
+        return new Base64DecodingMap(data);
     }
 }
 
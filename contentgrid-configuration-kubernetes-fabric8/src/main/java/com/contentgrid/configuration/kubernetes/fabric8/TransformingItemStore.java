@@ -0,0 +1,25 @@
+package com.contentgrid.configuration.kubernetes.fabric8;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.client.informers.cache.BasicItemStore;
+import io.fabric8.kubernetes.client.informers.cache.Cache;
+import java.util.function.UnaryOperator;
+
+/**
+ * An informer store that transforms every resource before it is stored, so the informer cache only holds the
+ * transformed resources
+ */
+class TransformingItemStore<T extends HasMetadata> extends BasicItemStore<T> {
+
+    private final UnaryOperator<T> transform;
+
+    TransformingItemStore(UnaryOperator<T> transform) {
+        super(Cache::metaNamespaceKeyFunc);
+        this.transform = transform;
+    }
+
+    @Override
+    public T put(String key, T obj) {
+        return super.put(key, transform.apply(obj));
+    }
+}
@@ -0,0 +1,48 @@
+package com.contentgrid.configuration.kubernetes.fabric8;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class Base64DecodingMapTest {
+
+    private static String encode(String value) {
+        return Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void decodesOnAccess() {
+        var map = new Base64DecodingMap(Map.of(
+                "contentgrid.idp.client-secret", encode("s3crét"),
+                "tls.crt", "not base64!"
+        ));
+
+        assertThat(map.get("contentgrid.idp.client-secret")).isEqualTo("s3crét");
+        assertThat(map.get("contentgrid.idp.client-secret")).isSameAs(map.get("contentgrid.idp.client-secret"));
+        assertThat(map.get("unknown")).isNull();
+        assertThat(map).containsKey("tls.crt").hasSize(2);
+
+        // Only decoded when it is read
+        assertThatThrownBy(() -> map.get("tls.crt")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void nullKey() {
+        var map = new Base64DecodingMap(Map.of("a", encode("1")));
+
+        assertThat(map.get(null)).isNull();
+        assertThat(map.containsKey(null)).isFalse();
+        assertThat(map.getOrDefault(null, "default")).isEqualTo("default");
+    }
+
+    @Test
+    void equalsDecodedMap() {
+        var map = new Base64DecodingMap(Map.of("a", encode("1"), "b", encode("2")));
+
+        assertThat(map).isEqualTo(Map.of("a", "1", "b", "2"));
+    }
+}
@@ -4,17 +4,21 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
 
 import com.contentgrid.configuration.api.fragments.ConfigurationFragment;
+import com.contentgrid.configuration.api.fragments.ConfigurationFragmentFactory;
 import com.contentgrid.configuration.api.observable.Observable.UpdateEvent;
 import com.contentgrid.configuration.api.observable.Observable.UpdateType;
 import com.contentgrid.configuration.api.test.ObservableUtils;
 import io.fabric8.kubernetes.api.model.NamespaceBuilder;
+import io.fabric8.kubernetes.api.model.Secret;
 import io.fabric8.kubernetes.api.model.SecretBuilder;
 import io.fabric8.kubernetes.client.Config;
 import io.fabric8.kubernetes.client.KubernetesClientBuilder;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import org.awaitility.core.ThrowingRunnable;
 import org.junit.jupiter.api.Test;
@@ -219,4 +223,72 @@ class KubernetesInformerObservableFactoryTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    void testPrunesStoredResources() throws Exception {
+        var client = new KubernetesClientBuilder()
+                .withConfig(Config.fromKubeconfig(k3s.getKubeConfigYaml()))
+                .build();
+        var namespace = UUID.randomUUID().toString();
+        client.namespaces().resource(new NamespaceBuilder()
+                        .withNewMetadata()
+                        .withName(namespace)
+                        .endMetadata()
+                        .build())
+                .create();
+        var factory = new KubernetesInformerObservableFactory(
+                client,
+                Duration.of(1, ChronoUnit.MINUTES)
+        );
+
+        var prune = ResourcePruning.secrets(key -> key.startsWith("contentgrid."), Set.of("aggregation-key")::contains);
+        var transforms = new AtomicInteger();
+        // Keeps the resource itself as the configuration, to check what the fragment factory receives
+        ConfigurationFragmentFactory<Secret, String, String, Secret> resourceFactory = secret -> new ConfigurationFragment<>(
+                secret.getMetadata().getUid(),
+                "xyz",
+                secret
+        );
+
+        var observable = factory.inform(
+                c -> c.secrets().inNamespace(namespace).withLabel("aggregation-key"),
+                resourceFactory,
+                secret -> {
+                    transforms.incrementAndGet();
+                    return prune.apply(secret);
+                }
+        );
+
+        var events = ObservableUtils.eventsToList(observable);
+
+        client.resource(new SecretBuilder()
+                        .withNewMetadata()
+                        .withNamespace(namespace)
+                        .withName("test-secret")
+                        .addToLabels("aggregation-key", "xyz")
+                        .addToLabels("other", "label")
+                        .addToAnnotations("note", "value")
+                        .endMetadata()
+                        .addToStringData("contentgrid.property", "value")
+                        .addToStringData("other-property", "other-value")
+                        .build())
+                .create();
+
+        awaitUntilAsserted(() -> {
+            assertThat(events).hasSize(1);
+        });
+
+        var received = events.get(0).getValue().getConfiguration().orElseThrow();
+        assertThat(received.getMetadata().getLabels()).isEqualTo(Map.of("aggregation-key", "xyz"));
+        assertThat(received.getMetadata().getAnnotations()).isNullOrEmpty();
+        assertThat(received.getData()).containsOnlyKeys("contentgrid.property");
+
+        // A new subscriber gets the resource from the informer store. It is the same instance that the event handler
+        // delivered, so the handler did not transform it a second time.
+        var replayed = observable.observe().blockFirst(Duration.ofSeconds(1)).getValue().getConfiguration().orElseThrow();
+        assertThat(replayed).isSameAs(received);
+        assertThat(transforms).hasValue(1);
+
+        factory.close();
+    }
+
+}
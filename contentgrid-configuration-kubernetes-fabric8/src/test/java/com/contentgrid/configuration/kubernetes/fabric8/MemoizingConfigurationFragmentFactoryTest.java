@@ -0,0 +1,91 @@
+package com.contentgrid.configuration.kubernetes.fabric8;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class MemoizingConfigurationFragmentFactoryTest {
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    private final ConfigMapConfigurationFragmentFactory<String, Map<String, String>> delegate = new ConfigMapConfigurationFragmentFactory<>(
+            configMap -> configMap.getMetadata().getName(),
+            data -> {
+                created.incrementAndGet();
+                return data;
+            }
+    );
+
+    private static ConfigMap configMap(String uid, String resourceVersion, String value) {
+        return new ConfigMapBuilder()
+                .withNewMetadata()
+                .withName("test")
+                .withUid(uid)
+                .withResourceVersion(resourceVersion)
+                .endMetadata()
+                .withData(Map.of("key", value))
+                .build();
+    }
+
+    @Test
+    void reusesFragmentOfUnchangedResource() {
+        var factory = new MemoizingConfigurationFragmentFactory<>(delegate);
+
+        var fragment = factory.createFragment(configMap("uid-1", "1", "a"));
+        assertThat(factory.createFragment(configMap("uid-1", "1", "a"))).isSameAs(fragment);
+        assertThat(created).hasValue(1);
+
+        // A new version of the resource
+        assertThat(factory.createFragment(configMap("uid-1", "2", "b")).getConfiguration())
+                .hasValue(Map.of("key", "b"));
+        assertThat(created).hasValue(2);
+
+        // Without a resource version, it can not be cached
+        factory.createFragment(configMap("uid-2", null, "c"));
+        factory.createFragment(configMap("uid-2", null, "c"));
+        assertThat(created).hasValue(4);
+    }
+
+    @Test
+    void replayOfMoreResourcesThanFit() {
+        var factory = new MemoizingConfigurationFragmentFactory<>(delegate, 2);
+
+        var resources = List.of(
+                configMap("uid-1", "1", "a"),
+                configMap("uid-2", "1", "b"),
+                configMap("uid-3", "1", "c")
+        );
+        resources.forEach(factory::createFragment);
+        assertThat(created).hasValue(3);
+
+        // Like a relist: the resources that are kept are still reused, only the one that did not fit is created again
+        resources.forEach(factory::createFragment);
+        assertThat(created).hasValue(4);
+
+        // A kept resource that changed replaces its old version
+        factory.createFragment(configMap("uid-1", "2", "a2"));
+        assertThat(created).hasValue(5);
+        factory.createFragment(configMap("uid-1", "2", "a2"));
+        assertThat(created).hasValue(5);
+    }
+
+    @Test
+    void forgetsRemovedResources() {
+        var factory = new MemoizingConfigurationFragmentFactory<>(delegate, 1);
+
+        var fragment = factory.createFragment(configMap("uid-1", "1", "a"));
+        // The fragment of the removed resource is reused to revoke it
+        assertThat(factory.removeFragment(configMap("uid-1", "1", "a"))).isSameAs(fragment);
+        assertThat(created).hasValue(1);
+
+        // Made room for another resource
+        var other = factory.createFragment(configMap("uid-2", "1", "b"));
+        assertThat(factory.createFragment(configMap("uid-2", "1", "b"))).isSameAs(other);
+        assertThat(created).hasValue(2);
+    }
+}
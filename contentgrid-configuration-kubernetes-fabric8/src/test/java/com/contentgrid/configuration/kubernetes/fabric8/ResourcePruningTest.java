@@ -0,0 +1,60 @@
+package com.contentgrid.configuration.kubernetes.fabric8;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.ManagedFieldsEntryBuilder;
+import io.fabric8.kubernetes.api.model.SecretBuilder;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class ResourcePruningTest {
+
+    @Test
+    void configMaps() {
+        var prune = ResourcePruning.configMaps(key -> key.startsWith("contentgrid."), Set.of("app-id")::contains);
+
+        var pruned = prune.apply(new ConfigMapBuilder()
+                .withNewMetadata()
+                .withName("test")
+                .withNamespace("default")
+                .withUid("uid-1")
+                .withResourceVersion("5")
+                .withLabels(Map.of("app-id", "abc", "other", "label"))
+                .withAnnotations(Map.of("kubectl.kubernetes.io/last-applied-configuration", "{}"))
+                .withManagedFields(new ManagedFieldsEntryBuilder().withManager("kubectl").build())
+                .endMetadata()
+                .withData(Map.of("contentgrid.routing.domains", "example.com", "unrelated", "value"))
+                .build());
+
+        assertThat(pruned.getMetadata().getName()).isEqualTo("test");
+        assertThat(pruned.getMetadata().getNamespace()).isEqualTo("default");
+        assertThat(pruned.getMetadata().getUid()).isEqualTo("uid-1");
+        assertThat(pruned.getMetadata().getResourceVersion()).isEqualTo("5");
+        assertThat(pruned.getMetadata().getLabels()).isEqualTo(Map.of("app-id", "abc"));
+        assertThat(pruned.getMetadata().getAnnotations()).isNullOrEmpty();
+        assertThat(pruned.getMetadata().getManagedFields()).isNullOrEmpty();
+        assertThat(pruned.getData()).isEqualTo(Map.of("contentgrid.routing.domains", "example.com"));
+    }
+
+    @Test
+    void secrets() {
+        var prune = ResourcePruning.secrets(key -> key.startsWith("contentgrid."), Set.of("app-id")::contains);
+
+        var pruned = prune.apply(new SecretBuilder()
+                .withNewMetadata()
+                .withName("test")
+                .withUid("uid-1")
+                .withResourceVersion("5")
+                .withLabels(Map.of("app-id", "abc"))
+                .endMetadata()
+                .withType("Opaque")
+                .withData(Map.of("contentgrid.idp.client-secret", "c2VjcmV0", "tls.crt", "LS0tLS1CRUdJTi0tLS0t"))
+                .build());
+
+        assertThat(pruned.getMetadata().getLabels()).isEqualTo(Map.of("app-id", "abc"));
+        assertThat(pruned.getType()).isEqualTo("Opaque");
+        assertThat(pruned.getData()).isEqualTo(Map.of("contentgrid.idp.client-secret", "c2VjcmV0"));
+    }
+}